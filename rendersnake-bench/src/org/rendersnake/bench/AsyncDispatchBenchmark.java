@@ -0,0 +1,203 @@
+package org.rendersnake.bench;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rendersnake.HtmlCanvas;
+import org.rendersnake.Renderable;
+import org.rendersnake.ext.guice.GuiceComponentServlet;
+import org.rendersnake.ext.servlet.RouteTable;
+import org.rendersnake.internal.RenderExecutors;
+import org.rendersnake.test.Contents;
+import org.rendersnake.test.NoWriter;
+
+/**
+ * Load test of the GuiceComponentServlet with a page that waits for a slow backend.
+ * Each operation serves a batch of concurrent requests on a fixed pool of container threads,
+ * either rendering on the container thread or asynchronously.
+ *
+ * @author emicklei
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AsyncDispatchBenchmark {
+
+    static final int CONTAINER_THREADS = 8;
+    static final int REQUESTS = 64;
+
+    @Param({ "5" })
+    public int backendMillis;
+
+    private ExecutorService container;
+    private ExecutorService renderers;
+    private GuiceComponentServlet syncServlet;
+    private GuiceComponentServlet asyncServlet;
+
+    @Setup
+    public void setUp() throws Exception {
+        container = Executors.newFixedThreadPool(CONTAINER_THREADS);
+        renderers = RenderExecutors.newDefaultExecutor("bench-render");
+        Renderable page = new Renderable() {
+            public void renderOn(HtmlCanvas html) throws IOException {
+                try {
+                    // backend latency
+                    Thread.sleep(backendMillis);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                html.render(Contents.INSTANCE);
+            }
+        };
+        syncServlet = newServlet(page);
+        asyncServlet = newServlet(page);
+        asyncServlet.setExecutor(renderers);
+    }
+
+    @TearDown
+    public void tearDown() {
+        container.shutdown();
+        renderers.shutdown();
+    }
+
+    @Benchmark
+    public void syncDispatch() throws Exception {
+        this.serveBatch(syncServlet, false);
+    }
+
+    @Benchmark
+    public void asyncDispatch() throws Exception {
+        this.serveBatch(asyncServlet, true);
+    }
+
+    private void serveBatch(final GuiceComponentServlet servlet, final boolean async) throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(REQUESTS);
+        for (int r = 0; r < REQUESTS; r++) {
+            container.execute(new Runnable() {
+                public void run() {
+                    try {
+                        servlet.service(newRequest(async, done), newResponse());
+                    } catch (Exception ex) {
+                        throw new RuntimeException(ex);
+                    }
+                    if (!async)
+                        done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static GuiceComponentServlet newServlet(Renderable page) throws Exception {
+        GuiceComponentServlet servlet = new GuiceComponentServlet();
+        Field field = GuiceComponentServlet.class.getDeclaredField("pageRoutes");
+        field.setAccessible(true);
+        ((RouteTable<Renderable>) field.get(servlet)).add("/page", page);
+        return servlet;
+    }
+
+    static HttpServletRequest newRequest(final boolean async, final CountDownLatch done) {
+        final AsyncContext asyncContext = proxy(AsyncContext.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("complete".equals(method.getName()))
+                    done.countDown();
+                return defaultValue(method);
+            }
+        });
+        return proxy(HttpServletRequest.class, new InvocationHandler() {
+            boolean started = false;
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if ("getMethod".equals(name))
+                    return "GET";
+                if ("getPathInfo".equals(name))
+                    return "/page";
+                if ("isAsyncSupported".equals(name))
+                    return async;
+                if ("startAsync".equals(name)) {
+                    started = true;
+                    return asyncContext;
+                }
+                if ("isAsyncStarted".equals(name))
+                    return started;
+                return defaultValue(method);
+            }
+        });
+    }
+
+    static HttpServletResponse newResponse() {
+        final PrintWriter writer = new PrintWriter(new NoWriter());
+        final ServletOutputStream out = new ServletOutputStream() {
+            public boolean isReady() {
+                return true;
+            }
+            public void setWriteListener(WriteListener listener) {
+                try {
+                    listener.onWritePossible();
+                } catch (IOException ex) {
+                    listener.onError(ex);
+                }
+            }
+            public void write(int b) {}
+            public void write(byte[] b, int off, int len) {}
+        };
+        return proxy(HttpServletResponse.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if ("getWriter".equals(name))
+                    return writer;
+                if ("getOutputStream".equals(name))
+                    return out;
+                if ("getCharacterEncoding".equals(name))
+                    return "UTF-8";
+                return defaultValue(method);
+            }
+        });
+    }
+
+    static Object defaultValue(Method method) {
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class)
+            return Boolean.FALSE;
+        if (type == int.class)
+            return 0;
+        if (type == long.class)
+            return 0L;
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler);
+    }
+}
@@ -0,0 +1,81 @@
+package org.rendersnake.bench;
+
+import static org.rendersnake.HtmlAttributesFactory.id;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rendersnake.HtmlAttributes;
+import org.rendersnake.HtmlCanvas;
+import org.rendersnake.test.NoWriter;
+
+/**
+ * Building HtmlAttributes and writing them as part of an element.
+ *
+ * @author emicklei
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AttributesBenchmark {
+
+    private HtmlCanvas html;
+    private NoWriter sink;
+
+    @Setup
+    public void setUp() {
+        sink = new NoWriter();
+        html = new HtmlCanvas(sink);
+    }
+
+    @Benchmark
+    public HtmlAttributes buildFourAttributes() {
+        return id("help").class_("class").abbr("abbr").background("background");
+    }
+
+    @Benchmark
+    public NoWriter buildAndWriteFourAttributes() throws IOException {
+        id("help").class_("class").abbr("abbr").background("background").writeCharsOn(sink);
+        return sink;
+    }
+
+    @Benchmark
+    public HtmlAttributes buildEscapedAttribute() {
+        return id("help").title("Tom & Jerry say \"<hello>\"");
+    }
+
+    @Benchmark
+    public HtmlCanvas divWithAttributes() throws IOException {
+        return html.div(id("help").class_("class").abbr("abbr").background("background"))._div();
+    }
+
+    @Benchmark
+    public NoWriter buildAndWriteFourCanvasAttributes() throws IOException {
+        html.attrs().id("help").class_("class").abbr("abbr").background("background").writeCharsOn(sink);
+        return sink;
+    }
+
+    @Benchmark
+    public HtmlCanvas divWithCanvasAttributes() throws IOException {
+        return html.div(html.attrs().id("help").class_("class").abbr("abbr").background("background"))._div();
+    }
+
+    @Benchmark
+    public HtmlCanvas divWithStreamingAttributes() throws IOException {
+        html.open("div").id("help").class_("class").abbr("abbr").background("background");
+        return html._div();
+    }
+}
@@ -0,0 +1,35 @@
+package org.rendersnake.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * BenchmarkMain runs the rendersnake benchmarks with the GC profiler enabled
+ * such that each result reports both ops/s and bytes allocated per op (gc.alloc.rate.norm).
+ *
+ * Usage
+ * <pre>
+ * mvn -f rendersnake-bench/pom.xml package
+ * java -jar rendersnake-bench/target/benchmarks.jar                  # all benchmarks
+ * java -jar rendersnake-bench/target/benchmarks.jar PageRender -f 1  # any JMH option or filter
+ * </pre>
+ *
+ * @author emicklei
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(commandLine);
+        if (commandLine.getIncludes().isEmpty()) {
+            options.include("org.rendersnake.bench.*");
+        }
+        options.addProfiler(GCProfiler.class);
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,77 @@
+package org.rendersnake.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rendersnake.HtmlCanvas;
+import org.rendersnake.test.NoWriter;
+
+/**
+ * Element open/close on a canvas that writes to a NoWriter.
+ *
+ * @author emicklei
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CanvasBenchmark {
+
+    private HtmlCanvas html;
+
+    @Setup
+    public void setUp() {
+        html = new HtmlCanvas(new NoWriter());
+    }
+
+    @Benchmark
+    public HtmlCanvas divOpenClose() throws IOException {
+        return html.div()._div();
+    }
+
+    @Benchmark
+    public HtmlCanvas nestedOpenClose() throws IOException {
+        return html.ul().li().span()._span()._li()._ul();
+    }
+
+    @Benchmark
+    public HtmlCanvas customTagOpenClose() throws IOException {
+        return html.tag("custom").tag_close("custom");
+    }
+
+    @Benchmark
+    public HtmlCanvas selfClosing() throws IOException {
+        return html.br();
+    }
+
+    @Benchmark
+    public HtmlCanvas newCanvas() {
+        return new HtmlCanvas(html.getOutputWriter());
+    }
+
+    @Benchmark
+    public HtmlCanvas newCanvasPerPage() throws IOException {
+        HtmlCanvas page = new HtmlCanvas(html.getOutputWriter());
+        page.getPageContext().withString("title", "bench");
+        return page.html().body()._body()._html();
+    }
+
+    @Benchmark
+    public HtmlCanvas resetCanvasPerPage() throws IOException {
+        html.reset(html.getOutputWriter());
+        html.getPageContext().withString("title", "bench");
+        return html.html().body()._body()._html();
+    }
+}
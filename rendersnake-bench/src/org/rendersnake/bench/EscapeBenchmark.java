@@ -0,0 +1,100 @@
+package org.rendersnake.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rendersnake.HtmlCanvas;
+import org.rendersnake.SafeText;
+import org.rendersnake.ext.apache.CommonsHtmlEscapeHandler;
+import org.rendersnake.internal.CachingHtmlEscapeHandler;
+import org.rendersnake.internal.HtmlEscaper;
+import org.rendersnake.test.NoWriter;
+
+/**
+ * Escaping text through HtmlCanvas.write(String), which uses the installed HtmlEscapeHandler.
+ *
+ * @author emicklei
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EscapeBenchmark {
+
+    @Param({
+        "no need to escape this",
+        "Tom & Jerry say \"<hello>\" to 'you'",
+        "Crème brûlée à la carte für Überraschungen" })
+    public String text;
+
+    private HtmlCanvas html;
+    private NoWriter sink;
+    private final HtmlEscaper escaper = HtmlEscaper.INSTANCE;
+    private final CommonsHtmlEscapeHandler commons = new CommonsHtmlEscapeHandler();
+    private final CachingHtmlEscapeHandler caching = new CachingHtmlEscapeHandler(1024);
+    private SafeText safeText;
+    // more distinct Strings than the cache remembers ; each write is a miss
+    private final String[] distinctTexts = new String[4096];
+    private int next = 0;
+
+    @Setup
+    public void setUp() {
+        sink = new NoWriter();
+        html = new HtmlCanvas(sink);
+        safeText = SafeText.escaped(text);
+        for (int i = 0; i < distinctTexts.length; i++)
+            distinctTexts[i] = new String(text);
+    }
+
+    @Benchmark
+    public HtmlCanvas write() throws IOException {
+        return html.write(text);
+    }
+
+    @Benchmark
+    public HtmlCanvas writeNoEscape() throws IOException {
+        return html.write(text, HtmlCanvas.NO_ESCAPE);
+    }
+
+    @Benchmark
+    public NoWriter escapeWithHtmlEscaper() throws IOException {
+        escaper.escapeHtml(sink, text);
+        return sink;
+    }
+
+    @Benchmark
+    public NoWriter escapeWithCommons() throws IOException {
+        commons.escapeHtml(sink, text);
+        return sink;
+    }
+
+    @Benchmark
+    public NoWriter escapeWithCache() throws IOException {
+        caching.escapeHtml(sink, text);
+        return sink;
+    }
+
+    @Benchmark
+    public NoWriter escapeWithCacheMiss() throws IOException {
+        caching.escapeHtml(sink, distinctTexts[next++ & (distinctTexts.length - 1)]);
+        return sink;
+    }
+
+    @Benchmark
+    public HtmlCanvas writeSafeText() throws IOException {
+        return html.write(safeText);
+    }
+}
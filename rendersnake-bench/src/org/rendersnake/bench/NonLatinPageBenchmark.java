@@ -0,0 +1,102 @@
+package org.rendersnake.bench;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rendersnake.HtmlCanvas;
+import org.rendersnake.Utf8HtmlCanvas;
+import org.rendersnake.ext.apache.CommonsHtmlEscapeHandler;
+import org.rendersnake.internal.HtmlEscapeHandler;
+import org.rendersnake.internal.HtmlEscaper;
+import org.rendersnake.test.NullOutputStream;
+
+/**
+ * Rendering a page of Greek, Cyrillic and Japanese text as UTF-8 bytes with each escape handler.
+ * The UTF-8 size of one page is printed per handler on setup.
+ *
+ * @author emicklei
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NonLatinPageBenchmark {
+
+    private static final String[] PARAGRAPHS = {
+        "Η γρήγορη καφέ αλεπού πηδάει πάνω από το τεμπέλικο σκυλί & γαβγίζει.",
+        "Съешь же ещё этих мягких французских булок, да выпей чаю.",
+        "いろはにほへと ちりぬるを わかよたれそ つねならむ <うゐのおくやま>." };
+
+    /**
+     * html5 = HtmlEscaper, commons = named entities, numeric = former fallback without commons-lang3.
+     */
+    @Param({ "html5", "commons", "numeric" })
+    public String handler;
+
+    private HtmlEscapeHandler escapeHandler;
+    private Utf8HtmlCanvas html;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        if ("commons".equals(handler)) {
+            escapeHandler = new CommonsHtmlEscapeHandler();
+        } else if ("numeric".equals(handler)) {
+            escapeHandler = new NumericEscapeHandler();
+        } else {
+            escapeHandler = HtmlEscaper.INSTANCE;
+        }
+        HtmlCanvas.HTML_ESCAPE_HANDLER = escapeHandler;
+        html = new Utf8HtmlCanvas(new NullOutputStream());
+        NullOutputStream counter = new NullOutputStream();
+        Utf8HtmlCanvas sizing = new Utf8HtmlCanvas(counter);
+        renderPage(sizing);
+        sizing.flush();
+        System.out.println("\n" + handler + " page size: " + counter.written + " bytes");
+    }
+
+    @Benchmark
+    public HtmlCanvas renderPage() throws IOException {
+        return renderPage(html);
+    }
+
+    private HtmlCanvas renderPage(HtmlCanvas page) throws IOException {
+        page.html().body();
+        for (int i = 0; i < 50; i++) {
+            for (String each : PARAGRAPHS) {
+                page.p().write(each)._p();
+            }
+        }
+        return page._body()._html();
+    }
+
+    /**
+     * Escapes all non-ASCII as &amp;#NNN; like StringEscapeUtils.escapeXml.
+     */
+    static class NumericEscapeHandler implements HtmlEscapeHandler {
+        public void escapeHtml(Writer out, String text) throws IOException {
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c < 32 || c > 127 || c == '&' || c == '\'' || c == '<' || c == '>' || c == '"') {
+                    out.append('&').append('#').append(Integer.toString(c, 10)).append(';');
+                } else {
+                    out.append(c);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package org.rendersnake.bench;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rendersnake.ContextKey;
+import org.rendersnake.PageContext;
+import org.rendersnake.ext.servlet.RequestHeadersMap;
+import org.rendersnake.ext.servlet.RequestParametersMap;
+import org.rendersnake.ext.servlet.ServletUtils;
+import org.rendersnake.ext.servlet.SessionAttributesMap;
+import org.rendersnake.internal.StackedMap;
+
+/**
+ * Push/pop of component scopes and lookups through nested scopes.
+ *
+ * @author emicklei
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PageContextBenchmark {
+
+    static final int DEPTH = 8;
+    static final ContextKey<String> TITLE = ContextKey.ofString("title");
+    static final ContextKey<Integer> SIZE = ContextKey.ofInteger("size");
+
+    private PageContext context;
+    private StackedMap attributes;
+    private PageContext requestContext;
+    private HttpServletRequest request;
+
+    @Setup
+    public void setUp() {
+        requestContext = new PageContext();
+        request = AsyncDispatchBenchmark.newRequest(false, null);
+        context = new PageContext();
+        context.withString("title", "Bench");
+        context.withString("size", "20");
+        attributes = context.attributes;
+    }
+
+    @Benchmark
+    public int pushPop() {
+        attributes.push();
+        int depth = attributes.getDepth();
+        attributes.pop();
+        return depth;
+    }
+
+    @Benchmark
+    public String pushWritePop() {
+        attributes.push();
+        context.withString("local", "value");
+        String value = context.getString("local");
+        attributes.pop();
+        return value;
+    }
+
+    @Benchmark
+    public String lookupThroughNestedScopes() {
+        for (int d = 0; d < DEPTH; d++) {
+            attributes.push();
+        }
+        String value = context.getString("title");
+        for (int d = 0; d < DEPTH; d++) {
+            attributes.pop();
+        }
+        return value;
+    }
+
+    @Benchmark
+    public String readOnlyComponentScopes() {
+        // what HtmlCanvas.render does for components that only read from the context
+        for (int d = 0; d < DEPTH; d++) {
+            attributes.push();
+            context.getString("title");
+        }
+        String value = context.getString("title");
+        for (int d = 0; d < DEPTH; d++) {
+            attributes.pop();
+        }
+        return value;
+    }
+
+    @Benchmark
+    public String getStringByName() {
+        return context.getString("title");
+    }
+
+    @Benchmark
+    public String getStringByKey() {
+        return context.get(TITLE);
+    }
+
+    @Benchmark
+    public Integer parseIntegerByName() {
+        return context.getInteger("size");
+    }
+
+    @Benchmark
+    public Integer convertIntegerByKey() {
+        return context.get(SIZE);
+    }
+
+    @Benchmark
+    public int boxedCounter() {
+        int sum = 0;
+        for (int i = 1000; i < 1000 + DEPTH; i++) {
+            context.withInteger("counter", Integer.valueOf(i));
+            sum += context.getInteger("counter", Integer.valueOf(0));
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int primitiveCounter() {
+        int sum = 0;
+        for (int i = 1000; i < 1000 + DEPTH; i++) {
+            context.withInteger("counter", i);
+            sum += context.getInt("counter", 0);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public String forkAndRead() {
+        return context.fork().getString("title");
+    }
+
+    @Benchmark
+    public String copyAndRead() {
+        // what a region renderer had to do without fork()
+        PageContext copy = new PageContext();
+        for (Map.Entry<Object, Object> each : context.toMap().entrySet()) {
+            copy.withObject((String) each.getKey(), each.getValue());
+        }
+        return copy.getString("title");
+    }
+
+    @Benchmark
+    public Integer getIntegerWithDefault() {
+        return context.getInteger("missing", 42);
+    }
+
+    @Benchmark
+    public String eagerRequestSetup() {
+        requestContext.reset();
+        String q = request.getQueryString();
+        requestContext.withObject(PageContext.REQUEST_PATH, request.getPathTranslated());
+        requestContext.withObject(PageContext.REQUEST_URIQ, request.getRequestURI() + (q == null ? "" : "?" + q));
+        requestContext.withObject(PageContext.SESSION, new SessionAttributesMap(request));
+        requestContext.withObject(PageContext.REQUEST_PARAMETERS, new RequestParametersMap(request));
+        requestContext.withObject(PageContext.REQUEST_HEADERS, new RequestHeadersMap(request));
+        return requestContext.withString("title", "Bench").getString("title");
+    }
+
+    @Benchmark
+    public String lazyRequestSetup() {
+        requestContext.reset();
+        ServletUtils.setupPageContext(request, requestContext);
+        return requestContext.withString("title", "Bench").getString("title");
+    }
+}
@@ -0,0 +1,100 @@
+package org.rendersnake.bench;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rendersnake.CompiledFragment;
+import org.rendersnake.HtmlCanvas;
+import org.rendersnake.internal.ChunkedWriter;
+import org.rendersnake.internal.Utf8Writer;
+import org.rendersnake.test.Contents;
+import org.rendersnake.test.HomePage;
+import org.rendersnake.test.NoWriter;
+import org.rendersnake.test.NullOutputStream;
+
+/**
+ * Whole-page renders of the HomePage component on different output sinks.
+ *
+ * @author emicklei
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PageRenderBenchmark {
+
+    private static final CompiledFragment COMPILED_CONTENTS = new CompiledFragment(Contents.INSTANCE);
+
+    private NoWriter noWriter;
+    private Writer byteWriter;
+    private Utf8Writer utf8Writer;
+
+    @Setup
+    public void setUp() {
+        noWriter = new NoWriter();
+        byteWriter = new OutputStreamWriter(new NullOutputStream(), Charset.forName("UTF-8"));
+        utf8Writer = new Utf8Writer(new NullOutputStream());
+    }
+
+    @Benchmark
+    public HtmlCanvas renderOnStringWriter() throws IOException {
+        return new HtmlCanvas(new StringWriter(2048)).render(HomePage.INSTANCE);
+    }
+
+    @Benchmark
+    public HtmlCanvas renderOnNoWriter() throws IOException {
+        return new HtmlCanvas(noWriter).render(HomePage.INSTANCE);
+    }
+
+    @Benchmark
+    public HtmlCanvas renderOnOutputStreamWriter() throws IOException {
+        HtmlCanvas html = new HtmlCanvas(byteWriter).render(HomePage.INSTANCE);
+        byteWriter.flush();
+        return html;
+    }
+
+    @Benchmark
+    public HtmlCanvas renderChunkedOnOutputStreamWriter() throws IOException {
+        ChunkedWriter chunked = new ChunkedWriter(byteWriter);
+        HtmlCanvas html = new HtmlCanvas(chunked).render(HomePage.INSTANCE);
+        chunked.finish();
+        return html;
+    }
+
+    @Benchmark
+    public HtmlCanvas renderOnUtf8Writer() throws IOException {
+        HtmlCanvas html = new HtmlCanvas(utf8Writer).render(HomePage.INSTANCE);
+        utf8Writer.flush();
+        return html;
+    }
+
+    @Benchmark
+    public HtmlCanvas renderContentsOnNoWriter() throws IOException {
+        HtmlCanvas html = new HtmlCanvas(noWriter);
+        html.getPageContext().withObject("title", "Bench");
+        return html.render(Contents.INSTANCE);
+    }
+
+    @Benchmark
+    public HtmlCanvas renderCompiledContentsOnNoWriter() throws IOException {
+        HtmlCanvas html = new HtmlCanvas(noWriter);
+        html.getPageContext().withObject("title", "Bench");
+        return html.render(COMPILED_CONTENTS);
+    }
+}
@@ -0,0 +1,58 @@
+package org.rendersnake.bench;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rendersnake.HtmlCanvas;
+import org.rendersnake.Renderable;
+import org.rendersnake.test.Contents;
+
+/**
+ * A page of widgets that each wait for a backend call before writing.
+ *
+ * @author emicklei
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelRegionBenchmark {
+
+    static final Renderable WIDGET = new Renderable() {
+        public void renderOn(HtmlCanvas html) throws IOException {
+            try {
+                // backend latency
+                Thread.sleep(1);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            html.render(Contents.INSTANCE);
+        }
+    };
+
+    @Benchmark
+    public HtmlCanvas renderSerial() throws IOException {
+        HtmlCanvas html = new HtmlCanvas(new StringWriter(8192));
+        html.getPageContext().withString("title", "Bench");
+        return html.render(WIDGET).render(WIDGET).render(WIDGET).render(WIDGET);
+    }
+
+    @Benchmark
+    public HtmlCanvas renderParallel() throws IOException {
+        HtmlCanvas html = new HtmlCanvas(new StringWriter(8192));
+        html.getPageContext().withString("title", "Bench");
+        return html.renderParallel(WIDGET, WIDGET, WIDGET, WIDGET);
+    }
+}
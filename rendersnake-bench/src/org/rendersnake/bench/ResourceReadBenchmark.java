@@ -0,0 +1,93 @@
+package org.rendersnake.bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rendersnake.internal.ResourceReader;
+
+/**
+ * Reading a large html snippet from a file: the former line-by-line loop versus ResourceReader.
+ *
+ * @author emicklei
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResourceReadBenchmark {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    @Param({ "100000", "1000000" })
+    public int size;
+
+    private File file;
+    private URL url;
+
+    @Setup
+    public void setUp() throws IOException {
+        StringBuilder sb = new StringBuilder(size + 64);
+        while (sb.length() < size) sb.append("<tr><td class=\"cell\">Crème brûlée</td><td>42</td></tr>\n");
+        file = File.createTempFile("ResourceReadBenchmark", ".html");
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(sb.toString().getBytes(UTF8));
+        out.close();
+        url = file.toURI().toURL();
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    /**
+     * The loop used by StringResource before ResourceReader.
+     */
+    @Benchmark
+    public String lineByLine() throws IOException {
+        InputStream is = url.openStream();
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(is, UTF8));
+            StringBuilder builder = new StringBuilder(256);
+            while (reader.ready()) builder.append(reader.readLine()).append('\n');
+            return builder.toString();
+        } finally {
+            is.close();
+        }
+    }
+
+    @Benchmark
+    public String bulkStream() throws IOException {
+        InputStream is = url.openStream();
+        try {
+            return ResourceReader.read(is, (int) file.length(), UTF8);
+        } finally {
+            is.close();
+        }
+    }
+
+    @Benchmark
+    public String mappedFile() throws IOException {
+        return ResourceReader.read(url, UTF8);
+    }
+}
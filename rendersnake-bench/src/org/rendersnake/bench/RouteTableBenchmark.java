@@ -0,0 +1,67 @@
+package org.rendersnake.bench;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rendersnake.ext.servlet.RouteTable;
+
+/**
+ * Dispatch lookup of a request path: exact HashMap versus the RouteTable.
+ *
+ * @author emicklei
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteTableBenchmark {
+
+    private Map<String, String> exact;
+    private RouteTable<String> routes;
+
+    @Setup
+    public void setUp() {
+        exact = new HashMap<String, String>();
+        routes = new RouteTable<String>();
+        for (int i = 0; i < 50; i++) {
+            exact.put("/section" + i + "/index", "page" + i);
+            routes.add("/section" + i + "/index", "page" + i);
+            routes.add("/section" + i + "/items/{id}", "item" + i);
+            routes.add("/section" + i + "/items/{id}/comments/{comment}", "comment" + i);
+        }
+        routes.add("/static/*", "static");
+    }
+
+    @Benchmark
+    public String exactHashMap() {
+        return exact.get("/section25/index");
+    }
+
+    @Benchmark
+    public Object staticRoute() {
+        return routes.match("/section25/index");
+    }
+
+    @Benchmark
+    public Object parameterRoute() {
+        return routes.match("/section25/items/1234/comments/5");
+    }
+
+    @Benchmark
+    public Object wildcardRoute() {
+        return routes.match("/static/css/site.css");
+    }
+}
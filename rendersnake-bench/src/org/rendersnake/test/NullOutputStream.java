@@ -0,0 +1,19 @@
+package org.rendersnake.test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public class NullOutputStream extends OutputStream {
+
+    public long written = 0;
+
+    @Override
+    public void write(int b) throws IOException {
+        written++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        written += len;
+    }
+}
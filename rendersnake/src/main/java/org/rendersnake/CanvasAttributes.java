@@ -0,0 +1,31 @@
+package org.rendersnake;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * CanvasAttributes is the HtmlAttributes that is reused by a HtmlCanvas, see HtmlCanvas.attrs().
+ * Its buffer is cleared when it is acquired and after its characters are written.
+ *
+ * @author emicklei
+ */
+class CanvasAttributes extends HtmlAttributes {
+
+    /**
+     * Prepare for building the attributes of the next element.
+     * @return the receiver, a CanvasAttributes
+     */
+    CanvasAttributes acquire() {
+        out.reset();
+        return this;
+    }
+
+    /**
+     * Write all attributes and clear the buffer for reuse.
+     */
+    @Override
+    public void writeCharsOn(Writer writer) throws IOException {
+        out.writeCharsOn(writer);
+        out.reset();
+    }
+}
@@ -0,0 +1,106 @@
+package org.rendersnake;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.rendersnake.internal.RecordingCanvas;
+import org.rendersnake.internal.TagStack;
+
+/**
+ * CompiledFragment is a Renderable decorator that renders its component once on a recording canvas
+ * and replays the constant markup on each next render with one bulk write per segment.
+ * <p>
+ * Nested components that read from the PageContext (or use nextId()) are kept as holes ;
+ * these are rendered again on every replay. The first render writes the recorded output, so no component
+ * is rendered twice. If the component itself depends on the PageContext or leaves tags open then it is
+ * not compiled and is rendered as usual from the second render on.
+ * </p>
+ * <p>
+ * Only use this for components whose output depends on nothing but the PageContext ;
+ * values read from fields, services or the request outside the context are frozen after the first render.
+ * </p>
+ * <pre>
+ * static final Renderable FOOTER = new CompiledFragment(new Footer());
+ * ...
+ * html.render(FOOTER);
+ * </pre>
+ *
+ * @author emicklei
+ */
+public class CompiledFragment implements Renderable {
+
+    private final Renderable component;
+    /**
+     * Constant char[] segments interleaved with Renderable holes ; null if not compiled yet.
+     */
+    private volatile Object[] segments;
+    /**
+     * Set if the component could not be compiled.
+     */
+    private volatile boolean dynamic = false;
+
+    /**
+     * @param component , not null
+     */
+    public CompiledFragment(Renderable component) {
+        if (component == null)
+            throw new IllegalArgumentException("component == null");
+        this.component = component;
+    }
+
+    /**
+     * Replay the compiled segments on the html. Compile on first use.
+     */
+    public void renderOn(HtmlCanvas html) throws IOException {
+        // when being recorded as part of an enclosing fragment, let that one decide
+        if (dynamic || html instanceof RecordingCanvas) {
+            component.renderOn(html);
+            return;
+        }
+        Object[] replay = segments;
+        if (replay == null) {
+            RecordingCanvas recording = new RecordingCanvas(html);
+            replay = recording.record(component);
+            if (replay == null)
+                dynamic = true;
+            else
+                segments = replay;
+            // the component and its holes have been rendered ; write that output instead of rendering again
+            html.getOutputWriter().write(recording.getOutput());
+            final TagStack open = recording.getOpenTags();
+            for (int i = 0; i < open.size(); i++) {
+                html.openTagStack.add(open.get(i));
+            }
+            return;
+        }
+        final Writer out = html.getOutputWriter();
+        for (Object each : replay) {
+            if (each instanceof char[]) {
+                out.write((char[]) each);
+            } else {
+                html.render((Renderable) each);
+            }
+        }
+    }
+
+    /**
+     * @return whether the component has been rendered once
+     */
+    public boolean isCompiled() {
+        return segments != null || dynamic;
+    }
+
+    /**
+     * @return whether the component is rendered as usual because it depends on the PageContext
+     */
+    public boolean isDynamic() {
+        return dynamic;
+    }
+
+    /**
+     * @return the decorated component
+     */
+    public Renderable getComponent() {
+        return component;
+    }
+}
@@ -0,0 +1,186 @@
+package org.rendersnake;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ContextKey is a typed key for values in the PageContext.
+ * Declare keys once as constants ; each name gets an index that lets the PageContext find its value
+ * without hashing the name on every lookup. The value converted from a stored String is remembered
+ * until the value is replaced.
+ * <p>
+ * Only create keys for a fixed set of names, e.g. as static final fields. Every PageContext keeps a table
+ * entry per index, so keys with names built per request would make these tables grow. Keys with the same name share
+ * the index ; after MAX_INDEXED_NAMES names, keys get no index and their values are found by hashing the name.
+ * </p>
+ * <p>
+ * Values stored by a ContextKey are also visible by its name to the String based API, and vice versa.
+ * </p>
+ * <pre>
+ * static final ContextKey&lt;Integer&gt; PAGE_SIZE = ContextKey.ofInteger("page.size");
+ * ...
+ * html.getPageContext().with(PAGE_SIZE, 20);
+ * int size = html.getPageContext().get(PAGE_SIZE, 10);
+ * </pre>
+ *
+ * @author emicklei
+ */
+public final class ContextKey<T> {
+
+    /**
+     * Converter creates a typed value from a stored value that is not of the type of the key.
+     */
+    public interface Converter<T> {
+        /**
+         * @param value , not null
+         * @return the converted value or null if it cannot be converted
+         */
+        T convert(Object value);
+    }
+
+    /**
+     * Index of a key whose name is not indexed.
+     */
+    public static final int NO_INDEX = -1;
+    /**
+     * Maximum number of distinct names that get an index.
+     */
+    public static int MAX_INDEXED_NAMES = 1024;
+
+    // guarded by INDEX_BY_NAME
+    private static final Map<String, Integer> INDEX_BY_NAME = new HashMap<String, Integer>();
+
+    private final String name;
+    private final Class<T> type;
+    private final Converter<T> converter;
+    private final int index;
+
+    private ContextKey(String name, Class<T> type, Converter<T> converter) {
+        if (name == null)
+            throw new IllegalArgumentException("name == null");
+        if (type == null)
+            throw new IllegalArgumentException("type == null");
+        this.name = name;
+        this.type = type;
+        this.converter = converter;
+        this.index = indexOf(name);
+    }
+
+    private static int indexOf(String name) {
+        synchronized (INDEX_BY_NAME) {
+            Integer index = INDEX_BY_NAME.get(name);
+            if (index != null)
+                return index;
+            if (INDEX_BY_NAME.size() >= MAX_INDEXED_NAMES)
+                return NO_INDEX;
+            index = INDEX_BY_NAME.size();
+            INDEX_BY_NAME.put(name, index);
+            return index;
+        }
+    }
+
+    /**
+     * @param name , not null
+     * @param type , not null
+     * @param converterOrNull , used for values that are not an instance of type
+     * @return a new key
+     */
+    public static <T> ContextKey<T> of(String name, Class<T> type, Converter<T> converterOrNull) {
+        return new ContextKey<T>(name, type, converterOrNull);
+    }
+
+    /**
+     * @param name , not null
+     * @param type , not null
+     * @return a new key for which values of another type are absent
+     */
+    public static <T> ContextKey<T> of(String name, Class<T> type) {
+        return new ContextKey<T>(name, type, null);
+    }
+
+    public static ContextKey<String> ofString(String name) {
+        return new ContextKey<String>(name, String.class, new Converter<String>() {
+            public String convert(Object value) {
+                return value.toString();
+            }
+        });
+    }
+
+    public static ContextKey<Integer> ofInteger(String name) {
+        return new ContextKey<Integer>(name, Integer.class, new Converter<Integer>() {
+            public Integer convert(Object value) {
+                return isText(value) ? Integer.valueOf((String) value) : null;
+            }
+        });
+    }
+
+    public static ContextKey<Long> ofLong(String name) {
+        return new ContextKey<Long>(name, Long.class, new Converter<Long>() {
+            public Long convert(Object value) {
+                return isText(value) ? Long.valueOf((String) value) : null;
+            }
+        });
+    }
+
+    public static ContextKey<Float> ofFloat(String name) {
+        return new ContextKey<Float>(name, Float.class, new Converter<Float>() {
+            public Float convert(Object value) {
+                return isText(value) ? Float.valueOf((String) value) : null;
+            }
+        });
+    }
+
+    public static ContextKey<Boolean> ofBoolean(String name) {
+        return new ContextKey<Boolean>(name, Boolean.class, new Converter<Boolean>() {
+            public Boolean convert(Object value) {
+                return isText(value) ? Boolean.valueOf((String) value) : null;
+            }
+        });
+    }
+
+    private static boolean isText(Object value) {
+        return value instanceof String && !((String) value).isEmpty();
+    }
+
+    /**
+     * Answer the value as an instance of the type of this key.
+     * @param value , not null
+     * @return T | null
+     */
+    public T cast(Object value) {
+        if (this.isInstance(value))
+            return type.cast(value);
+        return converter == null ? null : converter.convert(value);
+    }
+
+    /**
+     * @return whether the value needs no conversion
+     */
+    public boolean isInstance(Object value) {
+        // exact class first ; most values are of a final type such as String or Integer
+        return value != null && (value.getClass() == type || type.isInstance(value));
+    }
+
+    /**
+     * @return the name used by the String based API
+     */
+    public String getName() {
+        return name;
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * @return the index of the name of this key ; NO_INDEX if there are too many names
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return "ContextKey(" + name + ":" + type.getSimpleName() + ")";
+    }
+}
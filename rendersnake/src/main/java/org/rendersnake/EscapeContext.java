@@ -0,0 +1,73 @@
+package org.rendersnake;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.rendersnake.internal.ContextEncoders;
+import org.rendersnake.internal.HtmlEscaper;
+
+/**
+ * EscapeContext tells how a value must be encoded for the place where it is written.
+ * <pre>
+ * html.a(html.attrs().addUrl("href", "/search", "q", query))
+ * html.div(html.attrs().add("data-name", name, EscapeContext.JAVASCRIPT_STRING))
+ * html.write("var name='", NO_ESCAPE).write(name, EscapeContext.JAVASCRIPT_STRING).write("';", NO_ESCAPE);
+ * </pre>
+ *
+ * @author emicklei
+ */
+public enum EscapeContext {
+    /**
+     * Text content of an element.
+     */
+    HTML {
+        @Override
+        public void encode(Writer out, String text) throws IOException {
+            HtmlEscaper.escape(out, text);
+        }
+    },
+    /**
+     * Value of a quoted attribute.
+     */
+    ATTRIBUTE {
+        @Override
+        public void encode(Writer out, String text) throws IOException {
+            HtmlEscaper.escape(out, text);
+        }
+    },
+    /**
+     * Path segment, query parameter name or value of a URL.
+     */
+    URL_COMPONENT {
+        @Override
+        public void encode(Writer out, String text) throws IOException {
+            ContextEncoders.encodeUrlComponent(out, text);
+        }
+    },
+    /**
+     * Content of a quoted JavaScript string literal.
+     */
+    JAVASCRIPT_STRING {
+        @Override
+        public void encode(Writer out, String text) throws IOException {
+            ContextEncoders.encodeJavaScriptString(out, text);
+        }
+    },
+    /**
+     * Content of a quoted CSS string.
+     */
+    CSS_STRING {
+        @Override
+        public void encode(Writer out, String text) throws IOException {
+            ContextEncoders.encodeCssString(out, text);
+        }
+    };
+
+    /**
+     * Write the text encoded for this context.
+     * @param out
+     * @param text , not null
+     * @throws IOException
+     */
+    public abstract void encode(Writer out, String text) throws IOException;
+}
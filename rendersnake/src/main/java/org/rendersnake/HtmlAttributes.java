@@ -5,7 +5,11 @@ import static org.rendersnake.HtmlAttributesFactory.*;
 import java.io.IOException;
 import java.io.Writer;
 
+import org.rendersnake.error.RenderException;
+import org.rendersnake.internal.CachingHtmlEscapeHandler;
 import org.rendersnake.internal.CharactersWriteable;
+import org.rendersnake.internal.ContextEncoders;
+import org.rendersnake.internal.HtmlEscaper;
 import org.rendersnake.internal.WriteBuffer;
 
 /**
@@ -22,6 +26,11 @@ public class HtmlAttributes implements CharactersWriteable {
      * On default, it is rendered (true).
      */
     public static boolean RENDER_DATA_TEST_ATTRIBUTE = true;
+    /**
+     * If set then escaped values are looked up in this cache first, see CachingHtmlEscapeHandler.install(...).
+     * On default, it is null.
+     */
+    public static CachingHtmlEscapeHandler ESCAPE_CACHE = null;
     /**
      * Default constructor
      */
@@ -76,31 +85,32 @@ public class HtmlAttributes implements CharactersWriteable {
 		out.append('=');
 		out.append('"');
 		if (doEscape) {
-		    // open-code for speed 
-		    // HTML4 (http://www.w3.org/TR/html4/charset.html#entities) 
-		    // Draft HTLM5 (http://www.w3.org/TR/2012/WD-html5-20120329/named-character-references.html#named-character-references)
-		    for (int i=0;i<value.length();i++) {
-		        char each = value.charAt(i);
-		        if ('\"' == each) {
-		            out.append("&quot;");
-		        } else if ('\'' == each) {
-		            out.append("&#39;");
-                } else if ('<' == each) {
-                    out.append("&lt;");
-                } else if ('>' == each) {
-                    out.append("&gt;");
-                } else if ('&' == each) {
-                    out.append("&amp;");
-                } else {
-                    out.append(each);
-                }
-		    }		    
+		    final CachingHtmlEscapeHandler cache = ESCAPE_CACHE;
+		    if (cache == null) {
+		        out.appendEscaped(value);
+		    } else {
+		        out.append(cache.escaped(value));
+		    }
 		} else {
 			out.append(value);
 		}
 		out.append('\"');
 		return this;
 	}
+    /**
+     * Add a key=value pair to the receiver. The value is not escaped again.
+     * 
+     * @param key
+     *            String (not-null)
+     * @param value
+     *            SafeText | null
+     * @return the receiver, an HtmlAttributes
+     */
+    public HtmlAttributes add(String key, SafeText value) {
+        if (value == null)
+            return this;
+        return this.add(key, value.toHtml(), NO_ESCAPE);
+    }
     /**
      * Add a key=value pair to the receiver.
      * 
@@ -120,27 +130,96 @@ public class HtmlAttributes implements CharactersWriteable {
         return this;
     }
 	/**
-	 * Add a key=value pair to the receiver. Apply javascript escaping to the value if needed.
+	 * Add a key=value pair to the receiver where the value is script code (e.g. onclick).
+	 * If doEscape then the value is escaped as an attribute value ; browsers decode the entities
+	 * before running the script.
 	 * 
 	 * @param key
 	 *            String (not-null)
 	 * @param value
 	 *            String | null
 	 * @param doEscape
-	 *            boolean  NOTE: this value is ignored: NO Ecmascript escaping.
+	 *            boolean
 	 * @return the receiver, an HtmlAttributes
 	 */
 	public HtmlAttributes addScript(String key, String value, boolean doEscape) {
+		return this.add(key, value, doEscape);
+	}
+	/**
+	 * Add a key=value pair to the receiver. Encode the value for the context, see EscapeContext.
+	 * 
+	 * @param key
+	 *            String (not-null)
+	 * @param value
+	 *            String | null
+	 * @param context
+	 *            EscapeContext (not-null)
+	 * @return the receiver, an HtmlAttributes
+	 */
+	public HtmlAttributes add(String key, String value, EscapeContext context) {
 		if (value == null)
 			return this;
-		out.append(' ');
-		out.append(key);
-		out.append('=');
-		out.append('"');
-		out.append(value);
-		out.append('\"');
+		try {
+			final Writer writer = this.attributeWriter();
+			writer.write(' ');
+			writer.write(key);
+			writer.write('=');
+			writer.write('"');
+			context.encode(writer, value);
+			writer.write('"');
+		} catch (IOException ex) {
+			throw RenderException.caught(ex);
+		}
 		return this;
-	}	
+	}
+	/**
+	 * Add a key=value pair to the receiver where the value is a URL with query parameters.
+	 * Parameter names and values are URL-encoded ; the base is escaped as an attribute value.
+	 * <pre>
+	 * html.a(html.attrs().addUrl("href", "/search", "q", "rock &amp; roll", "page", "2"))
+	 * // &lt;a href="/search?q=rock%20%26%20roll&amp;amp;page=2"&gt;
+	 * </pre>
+	 * 
+	 * @param key
+	 *            String (not-null)
+	 * @param base
+	 *            String (not-null), the URL without parameters or with parameters that are already encoded
+	 * @param namesAndValues
+	 *            String... , pairs of parameter name and value ; pairs with a null value are skipped
+	 * @return the receiver, an HtmlAttributes
+	 */
+	public HtmlAttributes addUrl(String key, String base, String... namesAndValues) {
+		if (namesAndValues.length % 2 != 0)
+			throw new IllegalArgumentException("namesAndValues must be pairs");
+		try {
+			final Writer writer = this.attributeWriter();
+			writer.write(' ');
+			writer.write(key);
+			writer.write('=');
+			writer.write('"');
+			HtmlEscaper.escape(writer, base);
+			boolean first = base.indexOf('?') == -1;
+			for (int i = 0; i < namesAndValues.length; i += 2) {
+				if (namesAndValues[i + 1] == null)
+					continue;
+				writer.write(first ? "?" : "&amp;");
+				first = false;
+				ContextEncoders.encodeUrlComponent(writer, namesAndValues[i]);
+				writer.write('=');
+				ContextEncoders.encodeUrlComponent(writer, namesAndValues[i + 1]);
+			}
+			writer.write('"');
+		} catch (IOException ex) {
+			throw RenderException.caught(ex);
+		}
+		return this;
+	}
+	/**
+	 * Answer the writer that encoded attributes are written on.
+	 */
+	Writer attributeWriter() {
+		return out;
+	}
 	/**
 	 * Return a description of the receiver for debugging purposes.
 	 */
@@ -3,14 +3,14 @@ package org.rendersnake;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
-import java.util.ArrayList;
 
 import org.rendersnake.error.RenderException;
 import org.rendersnake.internal.CharactersWriteable;
 import org.rendersnake.internal.ContextMap;
 import org.rendersnake.internal.SinkCanvas;
 import org.rendersnake.internal.HtmlEscapeHandler;
-import org.rendersnake.internal.StringEscapeUtils;
+import org.rendersnake.internal.HtmlEscaper;
+import org.rendersnake.internal.TagStack;
 
 /**
  * HtmlCanvas provide the api to write HTML elements on a io.Writer.
@@ -21,9 +21,9 @@ import org.rendersnake.internal.StringEscapeUtils;
 public class HtmlCanvas {
     /**
      * The handler that can escape characters of a String for proper HTML writing.
+     * On default, this is the dependency-free HtmlEscaper that escapes &amp; &lt; &gt; &quot; ' only.
      */
-    public static HtmlEscapeHandler HTML_ESCAPE_HANDLER;    
-    static { StringEscapeUtils.init(); }
+    public static HtmlEscapeHandler HTML_ESCAPE_HANDLER = HtmlEscaper.INSTANCE;
     /**
      * Intention revealing constant to emphasize that escaping for a text item is not needed
      */
@@ -33,9 +33,9 @@ public class HtmlCanvas {
      */
     protected Writer out;
     /**
-     * Collection of written open elements to be closed.
+     * Closing tags of written open elements to be closed.
      */
-    protected ArrayList<String> openTagStack = new ArrayList<String>(INITIAL_STACK_CAPACITY);
+    protected TagStack openTagStack = new TagStack(INITIAL_STACK_CAPACITY);
     /**
      * Configurable parameter to nested element.
      */
@@ -52,6 +52,14 @@ public class HtmlCanvas {
      * The helper class that provides methods for common HTML constructions.
      */
     private CanvasMacros<? extends HtmlCanvas> canvasMacros;
+    /**
+     * Lazy initialized, see attrs()
+     */
+    private CanvasAttributes reusableAttributes;
+    /**
+     * Lazy initialized, see open(String)
+     */
+    private StreamingAttributes streamingAttributes;
     /**
      * Create a new HtmlCanvas that writes its output on Writer.
      * @param output
@@ -100,6 +108,23 @@ public class HtmlCanvas {
         this.write(aString,escapeNeeded);
         return this.close();        
     }
+    /**
+     * Prepare the receiver for rendering another page on a new output writer.
+     * Forget all open tags, the last generated id and all values of the PageContext.
+     * @param output
+     * @return the receiver
+     */
+    public HtmlCanvas reset(Writer output) {
+        if (streamingAttributes != null)
+            // an open tag left pending by a failed render must not write to the previous output
+            streamingAttributes.discard();
+        this.out = output;
+        this.openTagStack.clear();
+        this.lastId = 0;
+        if (pageContext != null)
+            pageContext.reset();
+        return this;
+    }
     /**
      * Create a new empty canvas based on the receiver.
      * NOTE: Id generation will no longer work for the local canvas.
@@ -149,6 +174,18 @@ public class HtmlCanvas {
         buffer.append(openTagStack);
         return buffer.toString();
     }
+    /**
+     * Send all output written so far to the client, e.g. after the head such that the browser
+     * can start fetching CSS and Javascript while the body is being rendered.
+     * This flushes the output writer ; it has no effect if that writer does not buffer.
+     *
+     * @return the receiver this <code>HtmlCanvas</code> instance.
+     * @throws IOException in case of an I/O error.
+     */
+    public HtmlCanvas flushPoint() throws IOException {
+        out.flush();
+        return this;
+    }
     /**
      * Return the current contents of the output writer.
      * 
@@ -158,14 +195,13 @@ public class HtmlCanvas {
         return out.toString();
     }  
     /**
-     * Raises an illegal state exception if initialization by StringEscapeUtils has failed.
+     * Raises an illegal state exception if the handler was set to null.
      * @return an actual implementation of the HtmlEscapeHandler
      */
     private static HtmlEscapeHandler getHtmlEscapeHandler() {
         if (HTML_ESCAPE_HANDLER == null)
-            throw new IllegalStateException("HTML Escape Handler not set." +
-            		"Either the Apache commons lang3 library is missing or" +
-            		"you need to provide an implementation of HtmlEscapeHandler yourself.");
+            throw new IllegalStateException("HTML Escape Handler not set. " +
+            		"Assign HtmlEscaper.INSTANCE or your own implementation of HtmlEscapeHandler.");
     	   return HTML_ESCAPE_HANDLER;
     	}    
     /**
@@ -181,6 +217,33 @@ public class HtmlCanvas {
         return this;
     }  
     
+    /**
+     * Write text encoded for the context, e.g. inside a script string literal. No need to close().
+     * 
+     * @param text String | null
+     * @param context EscapeContext , not null
+     * @return HTMLCanvas , the receiver
+     * @throws IOException
+     */
+    public HtmlCanvas write(String text, EscapeContext context) throws IOException {
+        if (text == null) return this;
+        context.encode(out, text);
+        return this;
+    }
+
+    /**
+     * Write text that is known to need no escaping. No need to close().
+     * 
+     * @param safeText SafeText | null
+     * @return HTMLCanvas , the receiver
+     * @throws IOException
+     */
+    public HtmlCanvas write(SafeText safeText) throws IOException {
+        if (safeText == null) return this;
+        out.write(safeText.toHtml());
+        return this;
+    }
+
     /**
      * Write a character. No need to close().
      * 
@@ -236,7 +299,7 @@ public class HtmlCanvas {
     public HtmlCanvas close() throws IOException {
         if (openTagStack.isEmpty())
             throw RenderException.emptyStack();
-        out.write(openTagStack.remove(openTagStack.size()-1));
+        out.write(openTagStack.pop());
         return this;
     }
 
@@ -250,8 +313,9 @@ public class HtmlCanvas {
     public HtmlCanvas close(String expectedTag) throws IOException {
         if (openTagStack.isEmpty())
             throw RenderException.emptyStack();
-    	String popped = openTagStack.remove(openTagStack.size()-1);
-        if (!popped.equals(expectedTag))
+    	String popped = openTagStack.pop();
+        // closing tags are interned ; compare by reference first
+        if (popped != expectedTag && !popped.equals(expectedTag))
             throw RenderException.unexpectedTag(popped,expectedTag);
         out.write(popped);
         return this;
@@ -278,6 +342,17 @@ public class HtmlCanvas {
         }
         return this;
     }
+    /**
+     * Render the components concurrently and write their output in the given order.
+     * See {@link ParallelRegion} for the restrictions on the components.
+     *
+     * @param components , null elements are ignored
+     * @return the receiver this <code>HtmlCanvas</code> instance.
+     * @throws IOException in case of an I/O error.
+     */
+    public HtmlCanvas renderParallel(Renderable... components) throws IOException {
+        return this.render(new ParallelRegion(components));
+    }
     /**
      * Conditionally render a component based on the condition.
      * @param component
@@ -298,6 +373,24 @@ public class HtmlCanvas {
     public HtmlAttributes attributes() {
         return new HtmlAttributes();
     }
+    /**
+     * Answer the HtmlAttributes that is owned and reused by the receiver.
+     * Its buffer is cleared on each call and after it is written by an element method,
+     * such that no garbage is created per element.
+     * <p>
+     * Use the result for one element only and do not keep a reference to it ;
+     * a next call to attrs() clears the attributes that were not written yet.
+     * </p>
+     * <pre>
+     * html.div(html.attrs().id("main").class_("content"))
+     * </pre>
+     * @return the reusable HtmlAttributes of this canvas
+     */
+    public HtmlAttributes attrs() {
+        if (reusableAttributes == null)
+            reusableAttributes = new CanvasAttributes();
+        return reusableAttributes.acquire();
+    }
 
     /**
      * Write the open tag &lt;{tagName}&gt;. Requires close().
@@ -315,9 +408,7 @@ public class HtmlCanvas {
         out.write('<');
         out.write(tagName);
         out.write('>');
-        StringBuilder buffer = new StringBuilder(tagName.length()+3);
-        buffer.append('<').append('/').append(tagName).append('>');
-        openTagStack.add(buffer.toString());
+        openTagStack.add(TagStack.closeTagFor(tagName));
         return this;
     }
 
@@ -329,11 +420,42 @@ public class HtmlCanvas {
     public HtmlCanvas tag_close(String tagName) throws IOException {
         if (tagName == null)
             throw RenderException.nullTag();
-        StringBuilder buffer = new StringBuilder(tagName.length()+3);
-        buffer.append('<').append('/').append(tagName).append('>');
-        return this.close(buffer.toString());        
+        return this.close(TagStack.closeTagFor(tagName));
     }
     
+    /**
+     * Write the start of the open tag &lt;{tagName} and answer the attributes that are written directly
+     * after it. The tag is finished by the next write on the receiver. Requires close().
+     * <pre>
+     * html.open("div").id("main").class_("content");
+     * html.write("text")._div();
+     * </pre>
+     * @param tagName
+     *            String, cannot be null
+     * @return the StreamingAttributes of the receiver
+     * @throws IOException
+     */
+    public StreamingAttributes open(String tagName) throws IOException {
+        if (tagName == null)
+            throw RenderException.nullTag();
+        out.write('<');
+        out.write(tagName);
+        openTagStack.add(TagStack.closeTagFor(tagName));
+        if (streamingAttributes == null)
+            streamingAttributes = new StreamingAttributes(this);
+        return streamingAttributes.begin();
+    }
+
+    /**
+     * Finish the open tag written by {@link #open(String)} if attributes may still follow.
+     * Subclasses call this before they remember a position in the output.
+     * @throws IOException
+     */
+    protected void finishOpenTag() throws IOException {
+        if (streamingAttributes != null)
+            streamingAttributes.end();
+    }
+
     /**
      * Write the open tag with attributes {attrs}. Requires close().
      * 
@@ -353,7 +475,7 @@ public class HtmlCanvas {
         out.append(tagName);
         attrs.writeCharsOn(out);
         out.write('>');
-        openTagStack.add("</" + tagName + '>');
+        openTagStack.add(TagStack.closeTagFor(tagName));
         return this;
     }
     
@@ -373,6 +495,13 @@ public class HtmlCanvas {
             pageContext = this.createPageContext();
         return pageContext;
     }
+    /**
+     * Replace the pageContext, e.g. by a fork of that of another canvas.
+     * @param context
+     */
+    void usePageContext(PageContext context) {
+        this.pageContext = context;
+    }
     /**
      * use RequestUtils.getSession(html) instead.
      * @return
@@ -395,7 +524,7 @@ public class HtmlCanvas {
      */
     @Deprecated 
     public ContextMap getPathParameters() {
-        return this.getPageContext().getContextMap(PageContext.REQUEST_PATH);
+        return RequestUtils.getPathParameters(this);
     }    
     /**
      * If the condition is true then return the receiver
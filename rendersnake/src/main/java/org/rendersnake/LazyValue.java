@@ -0,0 +1,53 @@
+package org.rendersnake;
+
+/**
+ * LazyValue is a value of the PageContext that is computed when it is read for the first time.
+ * The computed value is remembered ; it is also shared by forks of the PageContext.
+ * <pre>
+ * html.getPageContext().withLazy("user", new LazyValue&lt;User&gt;() {
+ *     protected User compute() {
+ *         return userService.find(request.getRemoteUser());
+ *     }
+ * });
+ * </pre>
+ * Reading the value by any get method of the PageContext answers the computed value, not the LazyValue.
+ *
+ * @author emicklei
+ */
+public abstract class LazyValue<T> {
+
+    private volatile boolean computed = false;
+    private T value;
+
+    /**
+     * @return the value ; called at most once
+     */
+    protected abstract T compute();
+
+    /**
+     * @return the computed value ; compute it on the first call
+     */
+    public final T get() {
+        if (!computed) {
+            synchronized (this) {
+                if (!computed) {
+                    value = this.compute();
+                    computed = true;
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @return whether the value has been computed
+     */
+    public boolean isComputed() {
+        return computed;
+    }
+
+    @Override
+    public String toString() {
+        return computed ? String.valueOf(value) : "LazyValue(not computed)";
+    }
+}
@@ -27,11 +27,22 @@ public class PageContext implements ContextMap {
     public static final String SESSION              = "http.session";
     public static final String REQUEST_HEADERS      = "http.request.headers";
     public static final String REQUEST_COOKIES      = "http.request.cookies";
+    public static final String REQUEST_PATH_PARAMETERS = "http.request.path.parameters";
     
     /**
      * Storage of the values for each component nesting level
      */
-    public StackedMap attributes = new StackedMap();
+    public StackedMap attributes;
+
+    public PageContext() {
+        this(new StackedMap());
+    }
+    /**
+     * @param attributes , the storage of values
+     */
+    protected PageContext(StackedMap attributes) {
+        this.attributes = attributes;
+    }
     
     
     /**
@@ -53,6 +64,18 @@ public class PageContext implements ContextMap {
         attributes.put(key, value);
         return this;
     }
+    /**
+     * Store a value that is computed when it is read for the first time.
+     * @param key , not null
+     * @param value , not null
+     * @return this
+     */
+    public PageContext withLazy(String key, LazyValue<?> value) {
+        if (value == null)
+            throw new IllegalArgumentException("value == null");
+        attributes.put(key, value);
+        return this;
+    }
     /**
      * Answer the value stored by a key
      * @param key , not null
@@ -164,9 +187,144 @@ public class PageContext implements ContextMap {
             return Long.parseLong((String)value);
         return null;
     }        
+    /**
+     * Store an int without boxing it.
+     * @param key , not null
+     * @param number
+     * @return this
+     */
+    public PageContext withInteger(String key, int number) {
+        attributes.putInt(key, number);
+        return this;
+    }
+    /**
+     * Answer the int stored by a key without boxing it.
+     * @param key , not null
+     * @param defaultValue , if absent or not an int
+     * @return int
+     */
+    public int getInt(String key, int defaultValue) {
+        return attributes.getInt(key, defaultValue);
+    }
+    /**
+     * Store a long without boxing it.
+     * @param key , not null
+     * @param aLong
+     * @return this
+     */
+    public PageContext withLong(String key, long aLong) {
+        attributes.putLong(key, aLong);
+        return this;
+    }
+    /**
+     * Answer the long stored by a key without boxing it.
+     * @param key , not null
+     * @param defaultValue , if absent or not a long
+     * @return long
+     */
+    public long getLongValue(String key, long defaultValue) {
+        return attributes.getLongValue(key, defaultValue);
+    }
+    /**
+     * Store a float without boxing it.
+     * @param key , not null
+     * @param aFloat
+     * @return this
+     */
+    public PageContext withFloat(String key, float aFloat) {
+        attributes.putFloat(key, aFloat);
+        return this;
+    }
+    /**
+     * Answer the float stored by a key without boxing it.
+     * @param key , not null
+     * @param defaultValue , if absent or not a float
+     * @return float
+     */
+    public float getFloatValue(String key, float defaultValue) {
+        return attributes.getFloatValue(key, defaultValue);
+    }
+    /**
+     * Store a boolean.
+     * @param key , not null
+     * @param trueOrFalse
+     * @return this
+     */
+    public PageContext withBoolean(String key, boolean trueOrFalse) {
+        attributes.putBoolean(key, trueOrFalse);
+        return this;
+    }
+    /**
+     * Answer the boolean stored by a key.
+     * @param key , not null
+     * @param defaultValue , if absent or not a boolean
+     * @return boolean
+     */
+    public boolean getBooleanValue(String key, boolean defaultValue) {
+        return attributes.getBooleanValue(key, defaultValue);
+    }
+    /**
+     * Store a value by a typed key ; it is also visible by the name of the key.
+     * @param key , not null
+     * @param value
+     * @return this
+     */
+    public <T> PageContext with(ContextKey<T> key, T value) {
+        attributes.put(key, value);
+        return this;
+    }
+    /**
+     * Answer the value stored by a typed key. A value of another type is converted once.
+     * @param key , not null
+     * @return T | null
+     */
+    public <T> T get(ContextKey<T> key) {
+        return attributes.get(key);
+    }
+    /**
+     * Answer the value stored by a typed key or the default value if absent.
+     * @param key , not null
+     * @param defaultValue
+     * @return T | defaultValue
+     */
+    public <T> T get(ContextKey<T> key, T defaultValue) {
+        final T value = attributes.get(key);
+        return value == null ? defaultValue : value;
+    }
+    /**
+     * Remove all values and nesting levels such that the receiver can be used for another page.
+     */
+    public void reset() {
+        attributes.reset();
+    }
+    /**
+     * Compute all lazy values now, on the calling thread.
+     * Call this before forking for another thread if lazy values read the request,
+     * which must only be used by the thread of the container.
+     */
+    public void computeLazyValues() {
+        attributes.computeLazyValues();
+    }
+    /**
+     * Answer a PageContext with the same values for rendering a region on another thread.
+     * Forking takes constant time ; values set in either context are not visible in the other.
+     * @return a new PageContext
+     */
+    public PageContext fork() {
+        return this.createFork(this.attributes.fork());
+    }
+    /**
+     * Return a new PageContext of the kind of the receiver.
+     * @param attributes , the forked storage of values
+     * @return a new PageContext
+     */
+    protected PageContext createFork(StackedMap attributes) {
+        return new PageContext(attributes);
+    }
     /**
      * The HtmlCanvas is about to render a new component.
      * This means values are stored on the next nesting level.
+     * That level is only materialized when the component writes a value ; read-only components cost nothing.
      */
     protected void beginRender() {
         attributes.push();
@@ -178,6 +336,12 @@ public class PageContext implements ContextMap {
     protected void endRender() {
         attributes.pop();
     }
+    /**
+     * @return the nesting level of the component being rendered, including levels that have no values
+     */
+    public int getDepth() {
+        return attributes.getDepth();
+    }
     /**
      * Render inspection information using the (debug) html
      * @param inspector 
@@ -185,7 +349,7 @@ public class PageContext implements ContextMap {
      * @throws IOException
      */
     public void renderForInpectorOn(Inspector inspector,HtmlCanvas html) throws IOException {
-        html.write("{d=" + attributes.getDepth() + "}");
+        html.write("{d=" + this.getDepth() + "}");
         /**
         html
             .pre()
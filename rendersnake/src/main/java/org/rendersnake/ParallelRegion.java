@@ -0,0 +1,152 @@
+package org.rendersnake;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.rendersnake.error.RenderException;
+import org.rendersnake.internal.RenderExecutors;
+
+/**
+ * ParallelRegion is a Renderable that renders independent components concurrently
+ * and writes their output in declaration order.
+ * <p>
+ * The first component is rendered on the calling thread directly onto the canvas.
+ * Each other component is rendered on a local canvas (see {@link HtmlCanvas#createLocalCanvas()})
+ * by the executor, using a fork of the PageContext. Its output is written as soon as all
+ * components before it are written, so early regions stream while later ones are still computing.
+ * </p>
+ * <p>
+ * Components must not depend on values set by each other or on generated ids.
+ * Lazy values of the PageContext are computed on the calling thread before the regions start.
+ * Components rendered by the executor must not use the request or response of a servlet canvas ;
+ * these may only be used by the thread of the container. Copy what they need into the PageContext instead.
+ * </p>
+ * <p>
+ * A region nested in a component that is rendered by the executor renders its components inline, in order.
+ * Waiting for tasks of the same bounded executor from one of its threads could otherwise deadlock.
+ * </p>
+ * <pre>
+ * html.renderParallel(new NewsWidget(), new WeatherWidget(), new StockWidget());
+ * </pre>
+ *
+ * @author emicklei
+ */
+public class ParallelRegion implements Renderable {
+
+    private static volatile ExecutorService EXECUTOR;
+
+    /**
+     * Set while a thread renders a component for a region
+     */
+    private static final ThreadLocal<Boolean> IN_REGION = new ThreadLocal<Boolean>();
+
+    private final Renderable[] components;
+
+    /**
+     * @param components , null elements are ignored
+     */
+    public ParallelRegion(Renderable... components) {
+        if (components == null)
+            throw new IllegalArgumentException("components == null");
+        this.components = components;
+    }
+
+    /**
+     * Set the executor used by all regions ; for example one with virtual threads or a bounded pool.
+     * Nested regions do not need extra threads of this executor.
+     * @param executor , not null
+     */
+    public static void setExecutor(ExecutorService executor) {
+        if (executor == null)
+            throw new IllegalArgumentException("executor == null");
+        EXECUTOR = executor;
+    }
+
+    /**
+     * Answer the executor used by all regions. Create one that uses virtual threads if available
+     * or daemon threads otherwise.
+     * @return ExecutorService
+     */
+    public static ExecutorService getExecutor() {
+        ExecutorService executor = EXECUTOR;
+        if (executor == null) {
+            synchronized (ParallelRegion.class) {
+                if (EXECUTOR == null)
+                    EXECUTOR = RenderExecutors.newDefaultExecutor("rendersnake-region");
+                executor = EXECUTOR;
+            }
+        }
+        return executor;
+    }
+
+    public void renderOn(HtmlCanvas html) throws IOException {
+        if (components.length == 0)
+            return;
+        if (IN_REGION.get() != null) {
+            // nested region on a thread of the executor
+            for (Renderable each : components) {
+                html.render(each);
+            }
+            return;
+        }
+        final List<Future<String>> regions = new ArrayList<Future<String>>(components.length - 1);
+        final ExecutorService executor = getExecutor();
+        if (html.hasPageContext())
+            // lazy values may read the request
+            html.getPageContext().computeLazyValues();
+        for (int c = 1; c < components.length; c++) {
+            regions.add(executor.submit(this.regionRenderer(html, components[c])));
+        }
+        try {
+            html.render(components[0]);
+            final Writer out = html.getOutputWriter();
+            for (Future<String> each : regions) {
+                out.write(each.get());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for a region");
+        } catch (ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw RenderException.caught((Exception) cause);
+        } finally {
+            // no-op for completed regions
+            for (Future<String> each : regions) {
+                each.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Answer the task that renders a component on a local canvas with a fork of the PageContext.
+     */
+    private Callable<String> regionRenderer(HtmlCanvas html, final Renderable component) {
+        final HtmlCanvas local = html.createLocalCanvas();
+        if (html.hasPageContext())
+            local.usePageContext(html.getPageContext().fork());
+        return new Callable<String>() {
+            public String call() throws Exception {
+                IN_REGION.set(Boolean.TRUE);
+                try {
+                    local.render(component);
+                    return local.toHtml();
+                } finally {
+                    IN_REGION.remove();
+                }
+            }
+        };
+    }
+}
@@ -77,6 +77,23 @@ public class RequestUtils {
     public static String getPath(HtmlCanvas html) {
         return html.getPageContext().getString(PageContext.REQUEST_PATH);
     }
+    /**
+     * @param html
+     * @return a ContextMap to access the parameters in the path of the inbound Http request, e.g. "id" of "/users/{id}".
+     */
+    public static ContextMap getPathParameters(HtmlCanvas html) {
+        return html.getPageContext().getContextMap(PageContext.REQUEST_PATH_PARAMETERS);
+    }
+    /**
+     * @param html
+     * @param name
+     * @return aString | null which is the value of a parameter in the path of the inbound Http request.
+     */
+    public static String getPathParameter(HtmlCanvas html, String name) {
+        ContextMap map = getPathParameters(html);
+        if (null == map) return null;
+        return map.getString(name);
+    }
     /**
      * Return the full undecoded URL.
      * @param html
@@ -0,0 +1,78 @@
+package org.rendersnake;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.rendersnake.internal.HtmlEscaper;
+
+/**
+ * SafeText is a String that can be written as HTML without escaping, either because it was escaped
+ * once on creation or because it is trusted to contain no characters that need escaping.
+ * Use it for labels and names that are written many times, e.g. as constants.
+ * <pre>
+ * static final SafeText SAVE = SafeText.escaped("Save & close");
+ * ...
+ * html.button(html.attrs().add("title", SAVE)).write(SAVE)._button();
+ * </pre>
+ *
+ * @author emicklei
+ */
+public final class SafeText {
+
+    private final String html;
+
+    private SafeText(String html) {
+        this.html = html;
+    }
+
+    /**
+     * Escape the text once and answer the result.
+     * @param text , plain text, not null
+     * @return SafeText
+     */
+    public static SafeText escaped(String text) {
+        if (HtmlEscaper.isClean(text))
+            return new SafeText(text);
+        StringWriter writer = new StringWriter(text.length() + 16);
+        try {
+            HtmlEscaper.escape(writer, text);
+        } catch (IOException ex) {
+            // StringWriter does not throw
+            throw new IllegalStateException(ex);
+        }
+        return new SafeText(writer.toString());
+    }
+
+    /**
+     * Answer a SafeText for a String that is already escaped or valid HTML. It is written as is.
+     * @param html , not null
+     * @return SafeText
+     */
+    public static SafeText trusted(String html) {
+        if (html == null)
+            throw new IllegalArgumentException("html == null");
+        return new SafeText(html);
+    }
+
+    /**
+     * @return the text that can be written without escaping
+     */
+    public String toHtml() {
+        return html;
+    }
+
+    @Override
+    public String toString() {
+        return html;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof SafeText && ((SafeText) other).html.equals(html);
+    }
+
+    @Override
+    public int hashCode() {
+        return html.hashCode();
+    }
+}
@@ -0,0 +1,185 @@
+package org.rendersnake;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.rendersnake.error.RenderException;
+import org.rendersnake.internal.CachingHtmlEscapeHandler;
+import org.rendersnake.internal.HtmlEscaper;
+
+/**
+ * StreamingAttributes writes each attribute directly to the output of a HtmlCanvas instead of
+ * buffering all of them. Each attribute is written with a single call on the output. It is answered by HtmlCanvas.open(tagName) ; the open tag is finished with '&gt;'
+ * as soon as anything else is written on the canvas (content, child element or close).
+ * <pre>
+ * html.open("div").id("main").class_("content");
+ * html.write("text")._div();
+ * </pre>
+ * Adding an attribute after the open tag is finished raises an IllegalStateException.
+ *
+ * @author emicklei
+ */
+public class StreamingAttributes extends HtmlAttributes {
+
+    private final HtmlCanvas canvas;
+    /**
+     * Installed as the output of the canvas while the open tag is not finished.
+     */
+    private final Writer pending = new PendingTagWriter();
+    /**
+     * The actual output of the canvas ; null if the open tag is finished.
+     */
+    private Writer target;
+    /**
+     * Reused to write one attribute with a single call on the output.
+     */
+    private char[] scratch = new char[128];
+
+    StreamingAttributes(HtmlCanvas canvas) {
+        this.canvas = canvas;
+    }
+
+    /**
+     * Start streaming the attributes of the open tag just written on the canvas.
+     */
+    StreamingAttributes begin() {
+        target = canvas.out;
+        canvas.out = pending;
+        return this;
+    }
+
+    /**
+     * Finish the open tag and restore the output of the canvas.
+     */
+    void end() throws IOException {
+        if (target == null)
+            return;
+        final Writer output = target;
+        target = null;
+        canvas.out = output;
+        output.write('>');
+    }
+
+    /**
+     * Forget the open tag without finishing it ; the canvas is reset to another output.
+     */
+    void discard() {
+        target = null;
+    }
+
+    /**
+     * @return the canvas that owns the receiver
+     */
+    public HtmlCanvas canvas() {
+        return canvas;
+    }
+
+    private Writer output() {
+        if (target == null)
+            throw new IllegalStateException("open tag is already finished ; attributes must be added before content");
+        return target;
+    }
+
+    @Override
+    public HtmlAttributes add(String key, String value, boolean doEscape) {
+        if (value == null)
+            return this;
+        final Writer output = this.output();
+        final CachingHtmlEscapeHandler cache = ESCAPE_CACHE;
+        if (doEscape && cache != null) {
+            value = cache.escaped(value);
+            doEscape = false;
+        }
+        int n = this.begin(key, 2 + (doEscape ? HtmlEscaper.escapedLength(value) : value.length()));
+        scratch[n++] = '"';
+        if (doEscape) {
+            n = HtmlEscaper.escape(value, scratch, n);
+        } else {
+            value.getChars(0, value.length(), scratch, n);
+            n += value.length();
+        }
+        scratch[n++] = '"';
+        this.write(output, n);
+        return this;
+    }
+
+    @Override
+    public HtmlAttributes add(String key, Integer value) {
+        if (value == null)
+            return this;
+        final Writer output = this.output();
+        final String digits = value.toString();
+        int n = this.begin(key, digits.length());
+        digits.getChars(0, digits.length(), scratch, n);
+        this.write(output, n + digits.length());
+        return this;
+    }
+
+    @Override
+    Writer attributeWriter() {
+        return this.output();
+    }
+
+    /**
+     * Put ' key=' in the scratch and make room for the value.
+     * @return the number of characters in the scratch
+     */
+    private int begin(String key, int valueCapacity) {
+        final int keyLength = key.length();
+        final int capacity = keyLength + 2 + valueCapacity;
+        if (capacity > scratch.length)
+            scratch = new char[Math.max(capacity, scratch.length * 2)];
+        scratch[0] = ' ';
+        key.getChars(0, keyLength, scratch, 1);
+        scratch[keyLength + 1] = '=';
+        return keyLength + 2;
+    }
+
+    private void write(Writer output, int length) {
+        try {
+            output.write(scratch, 0, length);
+        } catch (IOException ex) {
+            throw RenderException.caught(ex);
+        }
+    }
+
+    /**
+     * Writer that finishes the open tag before passing on the first write.
+     */
+    private class PendingTagWriter extends Writer {
+        @Override
+        public void write(int c) throws IOException {
+            end();
+            canvas.out.write(c);
+        }
+        @Override
+        public void write(String str) throws IOException {
+            end();
+            canvas.out.write(str);
+        }
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            end();
+            canvas.out.write(str, off, len);
+        }
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            end();
+            canvas.out.write(cbuf, off, len);
+        }
+        @Override
+        public void flush() throws IOException {
+            // do not finish the open tag ; more attributes may follow
+            (target == null ? canvas.out : target).flush();
+        }
+        @Override
+        public void close() throws IOException {
+            end();
+            canvas.out.close();
+        }
+        @Override
+        public String toString() {
+            return (target == null ? canvas.out : target).toString();
+        }
+    }
+}
@@ -1,16 +1,32 @@
 package org.rendersnake;
 
-import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
-import java.util.Map;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.rendersnake.internal.CachedResource;
+import org.rendersnake.internal.DaemonThreadFactory;
+import org.rendersnake.internal.ResourceReader;
+import org.rendersnake.internal.ResourceWatcher;
+import org.rendersnake.internal.StringResourceCache;
+import org.rendersnake.internal.UnboundedStringResourceCache;
+import org.rendersnake.internal.Utf8Writer;
+
 /**
  * StringResource holds a cache for text content such as Html snippets that is
  * read from resources on the classpath.
@@ -25,22 +41,38 @@ import java.util.logging.Logger;
  * html.text(StringResource.get(&quot;content/Introduction.html&quot;), false);
  * html.render(new StringResource(&quot;content/Introduction.html&quot;));
  * </pre>
+ * <p>
+ * By default, the cache has unlimited size. Use setCache(...) to limit its size, for example
+ * with a LruStringResourceCache.
+ * </p>
  * 
  * @author e.micklei
  */
 public class StringResource implements Renderable {
     /**
-     * Cache of content read from resources on the classpath. Unlimited size; no eviction or expiration.
+     * Cache of content read from resources on the classpath. Pluggable, see setCache(...).
+     */
+    private static volatile StringResourceCache CACHE = new UnboundedStringResourceCache();
+    /**
+     * Loads in progress ; concurrent misses for one location wait for the same load.
      */
-    private final static Map<String, String> CACHE = new ConcurrentHashMap<String, String>();
+    private final static ConcurrentMap<String, FutureTask<CachedResource>> LOADING = new ConcurrentHashMap<String, FutureTask<CachedResource>>();
     /**
      * Intention revealing constant to emphasize that caching for an item is not needed
      */
     public final static boolean DO_NOT_CACHE = false;
+    /**
+     * Encoding of all resources ; UTF-8 unless set by setCharset(...).
+     */
+    private static volatile Charset CHARSET = Charset.forName("UTF-8");
+    /**
+     * Non-null if changed files are reloaded, see startWatching().
+     */
+    private static volatile ResourceWatcher WATCHER;
     /**
      * Cached value for a given location (by constructor)
      */
-    private String content;
+    private CachedResource content;
     /**
      * If true then the content will be HTML-escaped when writing on a html
      */
@@ -50,7 +82,7 @@ public class StringResource implements Renderable {
      * @param location
      */
     public StringResource(String location) {
-        this.content = get(location);
+        this.content = resource(location, true);
     }
     /**
      * Create a StringResource with the cached value read from the resource location.
@@ -58,7 +90,7 @@ public class StringResource implements Renderable {
      * @param escapeNeeded
      */
     public StringResource(String location, boolean escapeNeeded) {
-        this.content = get(location);
+        this.content = resource(location, true);
         this.escapeNeeded = escapeNeeded;
     }
     /**
@@ -76,12 +108,111 @@ public class StringResource implements Renderable {
      */
     public static void flush(String location) {
         CACHE.remove(location);
+        unwatch(location);
     }
     /**
      * Forget about all cached resources.
      */
     public static void flush() {
-        CACHE.clear();    }
+        CACHE.clear();
+        final ResourceWatcher watcher = WATCHER;
+        if (watcher != null)
+            watcher.unwatchAll();
+    }
+    /**
+     * Start watching the files that back cached resources. When such a file changes, its content
+     * is read again by a background thread and replaces the cached entry ; other entries stay cached.
+     * Only resources that are loaded after this call are watched.
+     * @throws IOException if the file system cannot be watched
+     */
+    public static synchronized void startWatching() throws IOException {
+        if (WATCHER != null)
+            return;
+        WATCHER = new ResourceWatcher(new ResourceWatcher.Reloader() {
+            public void reload(String location, File file) {
+                try {
+                    // an entry that was flushed or evicted is not brought back
+                    if (CACHE.replace(location, ResourceReader.read(file, CHARSET)) == null)
+                        unwatch(location);
+                } catch (IOException e) {
+                    Logger.getAnonymousLogger().log(Level.WARNING, "Unable to reload content from:" + file);
+                    CACHE.remove(location);
+                    unwatch(location);
+                }
+            }
+            public void remove(String location) {
+                CACHE.remove(location);
+                unwatch(location);
+            }
+        });
+    }
+    /**
+     * Stop watching files. Cached contents remain.
+     */
+    public static synchronized void stopWatching() {
+        if (WATCHER == null)
+            return;
+        WATCHER.close();
+        WATCHER = null;
+    }
+    /**
+     * @return whether changed files of cached resources are reloaded
+     */
+    public static boolean isWatching() {
+        return WATCHER != null;
+    }
+
+    private static void unwatch(String location) {
+        final ResourceWatcher watcher = WATCHER;
+        if (watcher != null)
+            watcher.unwatch(location);
+    }
+
+    private static void watch(String location) {
+        final ResourceWatcher watcher = WATCHER;
+        if (watcher == null || location.startsWith("http://"))
+            return;
+        URL url = urlOrNull(location);
+        File file = url == null ? null : ResourceReader.fileOrNull(url);
+        if (file == null)
+            return;
+        try {
+            watcher.watch(location, file);
+        } catch (IOException e) {
+            Logger.getAnonymousLogger().log(Level.WARNING, "Unable to watch content from:" + file);
+        }
+    }
+    /**
+     * Replace the cache of StringResource. Cached contents of the previous cache are not copied.
+     * @param cache , not null
+     */
+    public static void setCache(StringResourceCache cache) {
+        if (cache == null)
+            throw new IllegalArgumentException("cache == null");
+        CACHE = cache;
+    }
+    /**
+     * Set the encoding used to decode resources that are read next. Cached contents are not affected.
+     * @param charset , not null
+     */
+    public static void setCharset(Charset charset) {
+        if (charset == null)
+            throw new IllegalArgumentException("charset == null");
+        CHARSET = charset;
+    }
+    /**
+     * @return the encoding used to decode resources
+     */
+    public static Charset getCharset() {
+        return CHARSET;
+    }
+    /**
+     * Answer the current cache, e.g. to inspect its statistics.
+     * @return StringResourceCache
+     */
+    public static StringResourceCache getCache() {
+        return CACHE;
+    }
     /**
      * Access the String contents from the given resource location.
      * @param location
@@ -89,22 +220,89 @@ public class StringResource implements Renderable {
      * @return resource contents , never null
      */
     public static String get(String location, boolean doCache) {
-        String content = null;
-        if (doCache) {
-            content = CACHE.get(location);
+        return resource(location, doCache).getContent();
+    }
+
+    private static CachedResource resource(final String location, boolean doCache) {
+        if (!doCache) {
+            return load(location, null);
+        }
+        final StringResourceCache cache = CACHE;
+        CachedResource resource = cache.get(location);
+        if (resource != null) {
+            return resource;
         }
+        FutureTask<CachedResource> loading = new FutureTask<CachedResource>(new Callable<CachedResource>() {
+            public CachedResource call() {
+                return load(location, cache);
+            }
+        });
+        FutureTask<CachedResource> running = LOADING.putIfAbsent(location, loading);
+        if (running == null) {
+            // this thread does the load
+            running = loading;
+            try {
+                running.run();
+            } finally {
+                LOADING.remove(location, running);
+            }
+        }
+        try {
+            return running.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return load(location, null);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    /**
+     * Read the content from the location and put it in the cache, if any.
+     * @param location
+     * @param cacheOrNull
+     * @return CachedResource , never null
+     */
+    private static CachedResource load(String location, StringResourceCache cacheOrNull) {
+        String content = contentOrNull(location);
         if (content == null) {
-            content = contentOrNull(location);
-            if (content == null) {
-                content = "[StringResource] Missing or error reading resource:" + location;
-            } else {
-                if (doCache) {
-                    CACHE.put(location, content);
-                }
+            return new CachedResource("[StringResource] Missing or error reading resource:" + location);
+        }
+        if (cacheOrNull != null) {
+            CachedResource resource = cacheOrNull.put(location, content);
+            watch(location);
+            return resource;
+        }
+        return new CachedResource(content);
+    }
+    /**
+     * Read and cache the contents of all locations in parallel. Return when all are loaded.
+     * Use this at startup to prevent slow first requests.
+     * @param locations
+     */
+    public static void preload(Collection<String> locations) {
+        if (locations.isEmpty())
+            return;
+        final int threads = Math.min(locations.size(), Runtime.getRuntime().availableProcessors() * 2);
+        ExecutorService pool = Executors.newFixedThreadPool(threads, new DaemonThreadFactory("StringResource-preload"));
+        try {
+            List<Callable<String>> loads = new ArrayList<Callable<String>>(locations.size());
+            for (final String each : locations) {
+                loads.add(new Callable<String>() {
+                    public String call() {
+                        return get(each);
+                    }
+                });
             }
+            pool.invokeAll(loads);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdown();
         }
-        return content;
-    }    
+    }
     /**
      * Return a StringResource for rendering the text available at <code>location</code>
      * @param location , the file on the classpath containing the resource text 
@@ -118,59 +316,64 @@ public class StringResource implements Renderable {
      * @param location
      * @return String | null if resource is not available
      */
-    @SuppressWarnings("PMD.EmptyCatchBlock")
     private static String contentOrNull(String location) {
         if (location.startsWith("http://")) {
             return fetchContentOrNull(location);
         }
-        String content = null;
-        InputStream is = Thread.currentThread().getContextClassLoader().getResourceAsStream(location);
-        if (is == null) {
-        	// retry different loader
-        	is = StringResource.class.getResourceAsStream(location);
+        URL url = urlOrNull(location);
+        if (url == null) {
+            return null;
         }
-        if (is != null) {
-            try {
-                BufferedReader reader = new BufferedReader(new InputStreamReader(is));
-                StringBuilder builder = new StringBuilder(256);
-                while (reader.ready()) builder.append(reader.readLine()).append('\n');
-                content = builder.toString();
-            } catch (IOException e) {
-                Logger.getAnonymousLogger().log(Level.WARNING, "Unable to fetch content from:"+ location);
-                // eat it, content stays null
-            }
+        try {
+            return ResourceReader.read(url, CHARSET);
+        } catch (IOException e) {
+            Logger.getAnonymousLogger().log(Level.WARNING, "Unable to fetch content from:" + location);
+            // eat it, content stays null
+            return null;
         }
-        return content;
     }
-    
+
+    /**
+     * @param location
+     * @return the URL of a resource on the classpath | null if not available
+     */
+    private static URL urlOrNull(String location) {
+        URL url = null;
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        if (loader != null) {
+            url = loader.getResource(location);
+        }
+        if (url == null) {
+            // retry different loader
+            url = StringResource.class.getResource(location);
+        }
+        return url;
+    }
+
     private static String fetchContentOrNull(String urlToRead) {
-        // slow but standard
-        URL url;
-        HttpURLConnection conn;
-        BufferedReader rd = null;
-        String line;
-        StringBuilder result = new StringBuilder();
+        InputStream in = null;
         try {
-           url = new URL(urlToRead);
-           conn = (HttpURLConnection) url.openConnection();
-           conn.setRequestMethod("GET");
-           rd = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-           while ((line = rd.readLine()) != null) {
-              result.append(line);
-           }
+            HttpURLConnection conn = (HttpURLConnection) new URL(urlToRead).openConnection();
+            conn.setRequestMethod("GET");
+            in = conn.getInputStream();
+            return ResourceReader.read(in, conn.getContentLength(), CHARSET);
         } catch (Exception e) {
-           Logger.getAnonymousLogger().log(Level.WARNING, "Unable to fetch content from:"+ urlToRead);
-           // eat it, content will be null
-           return null;
+            Logger.getAnonymousLogger().log(Level.WARNING, "Unable to fetch content from:" + urlToRead);
+            // eat it, content will be null
+            return null;
         } finally {
-            if (rd != null) try { rd.close(); } catch (Exception ex) {};            
+            if (in != null) try { in.close(); } catch (Exception ex) {};
         }
-        return result.toString();        
     }
     /**
      * Write the content as text using the html. Escape if needed.
+     * Unescaped content is copied as pre-encoded bytes if the html writes UTF-8 bytes.
      */
     public void renderOn(HtmlCanvas html) throws IOException {
-        html.write(content, escapeNeeded);
+        if (!escapeNeeded && html.getOutputWriter() instanceof Utf8Writer) {
+            ((Utf8Writer) html.getOutputWriter()).writeBytes(content.getUtf8());
+            return;
+        }
+        html.write(content.getContent(), escapeNeeded);
     }
 }
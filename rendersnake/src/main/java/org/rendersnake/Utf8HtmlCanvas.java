@@ -0,0 +1,68 @@
+package org.rendersnake;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.rendersnake.internal.Utf8Writer;
+
+/**
+ * Utf8HtmlCanvas is a HtmlCanvas that writes UTF-8 encoded bytes to an io.OutputStream.
+ * It skips the Writer/CharsetEncoder layer (e.g. of ServletResponse.getWriter()) ;
+ * markup is copied byte for byte and only non-ASCII text is encoded.
+ * <p>
+ * Output is buffered ; call flush() when done rendering.
+ * </p>
+ * <pre>
+ * response.setContentType("text/html; charset=UTF-8");
+ * Utf8HtmlCanvas html = new Utf8HtmlCanvas(response.getOutputStream());
+ * html.render(page).flush();
+ * </pre>
+ *
+ * @author emicklei
+ */
+public class Utf8HtmlCanvas extends HtmlCanvas {
+    private final Utf8Writer utf8Writer;
+    /**
+     * Create a new Utf8HtmlCanvas that writes its output on an OutputStream.
+     * @param output
+     */
+    public Utf8HtmlCanvas(OutputStream output) {
+        this(output, Utf8Writer.DEFAULT_BUFFER_SIZE);
+    }
+    /**
+     * Create a new Utf8HtmlCanvas that writes its output on an OutputStream.
+     * @param output
+     * @param bufferSize , the number of bytes to buffer before writing to the output
+     */
+    public Utf8HtmlCanvas(OutputStream output, int bufferSize) {
+        super(new Utf8Writer(output, bufferSize));
+        this.utf8Writer = (Utf8Writer) out;
+    }
+    /**
+     * Answer the writer that encodes the output.
+     * @return the Utf8Writer, also while an open tag is pending
+     */
+    public Utf8Writer getUtf8Writer() {
+        return utf8Writer;
+    }
+    /**
+     * Prepare the receiver for rendering another page on an OutputStream.
+     * The byte buffer of its Utf8Writer is reused ; bytes not yet flushed are dropped.
+     * @param output
+     * @return the receiver, a Utf8HtmlCanvas
+     */
+    public Utf8HtmlCanvas reset(OutputStream output) {
+        utf8Writer.reset(output);
+        this.reset(utf8Writer);
+        return this;
+    }
+    /**
+     * Transfer all buffered bytes to the output stream and flush it.
+     * @return the receiver, a HtmlCanvas
+     * @throws IOException
+     */
+    public Utf8HtmlCanvas flush() throws IOException {
+        out.flush();
+        return this;
+    }
+}
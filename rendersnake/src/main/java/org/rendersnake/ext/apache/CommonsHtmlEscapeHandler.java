@@ -13,6 +13,7 @@ import org.rendersnake.internal.HtmlEscapeHandler;
 public class CommonsHtmlEscapeHandler implements HtmlEscapeHandler{
 
     public void escapeHtml(Writer out, String text) throws IOException {
-        out.append(StringEscapeUtils.escapeHtml4(text));        
+        // translate onto the writer ; no intermediate String
+        StringEscapeUtils.ESCAPE_HTML4.translate(text, out);
     }
 }
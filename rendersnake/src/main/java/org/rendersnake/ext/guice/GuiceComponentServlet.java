@@ -2,14 +2,17 @@ package org.rendersnake.ext.guice;
 
 import java.io.IOException;
 import java.lang.reflect.Type;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.servlet.AsyncContext;
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -17,11 +20,12 @@ import javax.servlet.http.HttpServletResponse;
 import org.rendersnake.HtmlCanvas;
 import org.rendersnake.PageContext;
 import org.rendersnake.Renderable;
+import org.rendersnake.ext.servlet.AsyncResponseWriter;
 import org.rendersnake.ext.servlet.PostHandler;
-import org.rendersnake.ext.servlet.RequestHeadersMap;
-import org.rendersnake.ext.servlet.RequestParametersMap;
-import org.rendersnake.ext.servlet.SessionAttributesMap;
+import org.rendersnake.ext.servlet.RouteTable;
+import org.rendersnake.ext.servlet.ServletUtils;
 import org.rendersnake.ext.spring.HtmlCanvasFactory;
+import org.rendersnake.internal.RenderExecutors;
 
 import com.google.inject.Injector;
 import com.google.inject.Key;
@@ -29,6 +33,8 @@ import com.google.inject.Singleton;
 /**
  * GuiceComponentServlet is used to serve RenderSnake components.
  * Each such component must be annotation with @Named in order to pickup here.
+ * The name is a path pattern that can have parameters and a trailing wildcard, e.g. @Named("/users/{id}") ;
+ * see {@link RouteTable}. The values are available by RequestUtils.getPathParameters(html).
  *
  * Usage
  * <pre>
@@ -41,6 +47,13 @@ import com.google.inject.Singleton;
    }
  * </pre>         
  * 
+ * If the init-parameter "async" is "true" (or {@link #setExecutor(Executor)} was called) and the container supports it,
+ * then pages are rendered asynchronously on a virtual thread (Java 21+) or the given executor.
+ * The container thread is released after starting the request and the page is written using
+ * a non-blocking {@link AsyncResponseWriter}. Components that wait for slow services then no longer hold a container thread.
+ * <pre>
+       serve("/web/*").with(GuiceComponentServlet.class, Collections.singletonMap("async", "true"));
+ * </pre>
  * 
  * @author emicklei
  */
@@ -56,13 +69,21 @@ public class GuiceComponentServlet extends HttpServlet {
     private Injector injector;   
     
     /**
-     * Cached map of uri paths to Renderable components.
+     * Routes of uri paths to Renderable components.
+     */
+    private RouteTable<Renderable> pageRoutes = new RouteTable<Renderable>();
+    /**
+     * Routes of uri paths to FormHandler components.
      */
-    private Map<String,Renderable> dispatchMap = new HashMap<String,Renderable>();
+    private RouteTable<PostHandler> handlerRoutes = new RouteTable<PostHandler>();
     /**
-     * Cached map of uri paths to FormHandler components.
+     * Executor for rendering asynchronous requests ; null if disabled.
      */
-    private Map<String,PostHandler> handlerMap = new HashMap<String,PostHandler>();
+    private Executor executor;
+    /**
+     * Set if the executor was created by this servlet.
+     */
+    private ExecutorService ownExecutor;
     
     /**
      * Dispatch an incoming request to a Renderable component
@@ -71,34 +92,89 @@ public class GuiceComponentServlet extends HttpServlet {
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
         String uri = request.getPathInfo();
-        Renderable component = this.dispatchMap.get(uri);
-        if (component == null) {
+        RouteTable.Match<Renderable> route = this.pageRoutes.match(uri);
+        if (route == null) {
             response.sendError(404);
+        } else if (executor != null && request.isAsyncSupported()) {
+            this.dispatchAsync(route, request, response);
         } else {
-            HtmlCanvas canvas = HtmlCanvasFactory.createCanvas(request,response,response.getWriter());
-            PageContext context = canvas.getPageContext();
-            String q = request.getQueryString();
-            context.withObject(PageContext.REQUEST_PATH, request.getPathTranslated());
-            context.withObject(PageContext.REQUEST_URIQ, request.getRequestURI() + (q == null ? "" : "?" + q));
-            context.withObject(PageContext.SESSION, new SessionAttributesMap(request));
-            context.withObject(PageContext.REQUEST_PARAMETERS, new RequestParametersMap(request));  
-            context.withObject(PageContext.REQUEST_HEADERS, new RequestHeadersMap(request));
-            canvas.render(component);          
+            HtmlCanvas canvas = HtmlCanvasFactory.createPageCanvas(request,response);
+            try {
+                this.render(route, canvas, request);
+            } finally {
+                // also if rendering failed ; a pooled canvas must be released
+                HtmlCanvasFactory.finish(canvas);
+            }
         }
     }
 
+    /**
+     * Start the asynchronous request and render the component on the executor.
+     * The response is written by an AsyncResponseWriter that completes the request.
+     */
+    protected void dispatchAsync(final RouteTable.Match<Renderable> route, final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+        final AsyncContext asyncContext = request.startAsync();
+        final ServletOutputStream out = response.getOutputStream();
+        final AsyncResponseWriter writer = new AsyncResponseWriter(asyncContext, out, response.getCharacterEncoding());
+        out.setWriteListener(writer);
+        executor.execute(new Runnable() {
+            public void run() {
+                HtmlCanvas canvas = null;
+                try {
+                    canvas = HtmlCanvasFactory.STREAMING_ENABLED
+                            ? HtmlCanvasFactory.createStreamingCanvas(request, response, writer)
+                            : HtmlCanvasFactory.createCanvas(request, response, writer);
+                    try {
+                        render(route, canvas, request);
+                    } finally {
+                        HtmlCanvasFactory.finishOutput(canvas);
+                    }
+                    writer.close();
+                } catch (Exception ex) {
+                    LOG.log(Level.SEVERE, "Unable to render:" + request.getRequestURI(), ex);
+                    if (!response.isCommitted())
+                        response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                    writer.abort();
+                } finally {
+                    // the container dispatch has returned so no AsyncListener can be added ;
+                    // the canvas is not used after rendering
+                    HtmlCanvasFactory.releaseNow(canvas);
+                }
+            }
+        });
+    }
+
+    private void render(RouteTable.Match<Renderable> route, HtmlCanvas canvas, HttpServletRequest request) throws IOException {
+        PageContext context = canvas.getPageContext();
+        ServletUtils.setupPageContext(request, context);
+        context.withObject(PageContext.REQUEST_PATH_PARAMETERS, route.getParameters());
+        canvas.render(route.getTarget());
+    }
+
+    /**
+     * Render pages asynchronously on the given executor.
+     * The servlet (and web.xml) must be async-supported ; otherwise requests are rendered synchronously.
+     *
+     * @param executorOrNull , null to render synchronously
+     */
+    public void setExecutor(Executor executorOrNull) {
+        this.executor = executorOrNull;
+    }
+
     /**
      * Dispatch an incoming request to a PostHandler component
      * by looking for a named component that matches the path.
+     * The path parameters are available as request attribute PageContext.REQUEST_PATH_PARAMETERS.
      */
     @Override
     protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
         String uri = req.getPathInfo();
-        PostHandler handler = this.handlerMap.get(uri);
-        if (handler == null) {
+        RouteTable.Match<PostHandler> route = this.handlerRoutes.match(uri);
+        if (route == null) {
             resp.sendError(404);
         } else {
-            handler.handlePost(req, resp);
+            req.setAttribute(PageContext.REQUEST_PATH_PARAMETERS, route.getParameters());
+            route.getTarget().handlePost(req, resp);
         }
     }    
     /**
@@ -115,7 +191,8 @@ public class GuiceComponentServlet extends HttpServlet {
                     Renderable p = (Renderable)injector.getInstance(klass);
                     Named annotation = klass.getAnnotation(Named.class);
                     if (annotation != null) {
-                        dispatchMap.put(annotation.value(), p);
+                        if (pageRoutes.add(annotation.value(), p) != null)
+                            LOG.warning("Replaced component bound to:" + annotation);
                         LOG.info("Binding component:"+klass+" to:" + annotation);
                     } else {
                         LOG.severe("Missing @Named annotation in component:"+klass);
@@ -125,7 +202,8 @@ public class GuiceComponentServlet extends HttpServlet {
                     PostHandler h = (PostHandler)injector.getInstance(klass);
                     Named annotation = klass.getAnnotation(Named.class);
                     if (annotation != null) {
-                        handlerMap.put(annotation.value(), h);
+                        if (handlerRoutes.add(annotation.value(), h) != null)
+                            LOG.warning("Replaced handler bound to:" + annotation);
                         LOG.info("Binding component:"+klass+" to:" + annotation);
                     } else {
                         LOG.severe("Missing @Named annotation in component:"+klass);
@@ -133,6 +211,21 @@ public class GuiceComponentServlet extends HttpServlet {
                 }                
             }
         }                
+        if (executor == null && "true".equals(config.getInitParameter("async"))) {
+            ownExecutor = RenderExecutors.newDefaultExecutor("rendersnake-page");
+            executor = ownExecutor;
+            LOG.info("Rendering pages asynchronously on:" + executor);
+        }
         super.init(config);
     }
+
+    @Override
+    public void destroy() {
+        if (ownExecutor != null) {
+            ownExecutor.shutdown();
+            ownExecutor = null;
+            executor = null;
+        }
+        super.destroy();
+    }
 }
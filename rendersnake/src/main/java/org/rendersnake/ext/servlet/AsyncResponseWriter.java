@@ -0,0 +1,184 @@
+package org.rendersnake.ext.servlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.util.LinkedList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+
+/**
+ * AsyncResponseWriter is a Writer for rendering a page of an asynchronous request.
+ * The rendering thread never blocks on the client: characters are encoded into chunks on each flush
+ * and the chunks are written to the ServletOutputStream only when it is ready, as its WriteListener.
+ * The request is completed when all chunks are written after {@link #close()}.
+ * <pre>
+ * AsyncContext async = request.startAsync();
+ * AsyncResponseWriter writer = new AsyncResponseWriter(async, response.getOutputStream(), response.getCharacterEncoding());
+ * response.getOutputStream().setWriteListener(writer);
+ * // on another thread
+ * new HtmlCanvas(writer).render(page);
+ * writer.close();
+ * </pre>
+ *
+ * Only one thread may write ; the container calls the listener methods.
+ *
+ * @author emicklei
+ */
+public class AsyncResponseWriter extends Writer implements WriteListener {
+    private static final Logger LOG = Logger.getLogger("org.rendersnake.ext.servlet");
+    /**
+     * Encoding of the response if none is given.
+     */
+    public static final String DEFAULT_ENCODING = "ISO-8859-1";
+
+    private final AsyncContext asyncContext;
+    private final ServletOutputStream out;
+    private final ByteArrayOutputStream encoded = new ByteArrayOutputStream(1024);
+    private final Writer encoder;
+
+    // guarded by this
+    private final LinkedList<byte[]> chunks = new LinkedList<byte[]>();
+    private boolean writePossible = false;
+    private boolean closed = false;
+    private boolean completed = false;
+    private Throwable error;
+
+    /**
+     * @param asyncContext , of the started request
+     * @param out , the output stream of the response
+     * @param encodingOrNull , the character encoding of the response
+     * @throws UnsupportedEncodingException
+     */
+    public AsyncResponseWriter(AsyncContext asyncContext, ServletOutputStream out, String encodingOrNull)
+            throws UnsupportedEncodingException {
+        super();
+        this.asyncContext = asyncContext;
+        this.out = out;
+        this.encoder = new OutputStreamWriter(encoded, encodingOrNull == null ? DEFAULT_ENCODING : encodingOrNull);
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        encoder.write(c);
+    }
+
+    @Override
+    public void write(String text, int offset, int length) throws IOException {
+        encoder.write(text, offset, length);
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+        encoder.write(chars, offset, length);
+    }
+
+    /**
+     * Queue the characters written so far and write them if the output stream is ready.
+     */
+    @Override
+    public void flush() throws IOException {
+        encoder.flush();
+        synchronized (this) {
+            this.enqueue();
+            this.drain();
+        }
+    }
+
+    /**
+     * Queue the remaining characters ; the request is completed after all are written.
+     */
+    @Override
+    public void close() throws IOException {
+        encoder.flush();
+        synchronized (this) {
+            if (closed)
+                return;
+            this.enqueue();
+            closed = true;
+            this.drain();
+        }
+    }
+
+    /**
+     * Drop the queued characters and complete the request ; used when rendering failed.
+     */
+    public synchronized void abort() {
+        chunks.clear();
+        closed = true;
+        this.complete();
+    }
+
+    /**
+     * Called by the container when the output stream can be written.
+     */
+    public synchronized void onWritePossible() throws IOException {
+        writePossible = true;
+        this.drain();
+    }
+
+    /**
+     * Called by the container if writing failed, e.g. when the client disconnected.
+     * Further writes fail with an IOException.
+     */
+    public synchronized void onError(Throwable t) {
+        LOG.log(Level.FINE, "asynchronous write failed", t);
+        error = t;
+        chunks.clear();
+        this.complete();
+    }
+
+    /**
+     * @return whether all characters are written and the request is completed
+     */
+    public synchronized boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * @return the number of chunks waiting for the output stream
+     */
+    public synchronized int getQueuedCount() {
+        return chunks.size();
+    }
+
+    private void enqueue() throws IOException {
+        if (error != null)
+            throw new IOException("asynchronous write failed", error);
+        if (encoded.size() == 0)
+            return;
+        chunks.add(encoded.toByteArray());
+        encoded.reset();
+    }
+
+    private void drain() throws IOException {
+        if (!writePossible || completed)
+            return;
+        while (out.isReady()) {
+            byte[] chunk = chunks.poll();
+            if (chunk == null) {
+                if (closed)
+                    this.complete();
+                else
+                    out.flush();
+                return;
+            }
+            out.write(chunk);
+        }
+        // the container calls onWritePossible when the stream is ready again
+        writePossible = false;
+    }
+
+    private void complete() {
+        if (completed)
+            return;
+        completed = true;
+        asyncContext.complete();
+    }
+}
@@ -0,0 +1,124 @@
+package org.rendersnake.ext.servlet;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * HtmlCanvasPool keeps HtmlServletCanvas instances for reuse by next requests.
+ * A canvas keeps its tag stack, PageContext and buffers ; these are reset on release.
+ * <p>
+ * The pool is an array of slots that are claimed with compare-and-set. Each thread starts
+ * probing at its own stripe so that threads rarely contend for the same slot.
+ * If no canvas is available then a new one is created ; if no slot is free then a released canvas is dropped.
+ * </p>
+ *
+ * @author emicklei
+ */
+public class HtmlCanvasPool {
+    /**
+     * Number of slots probed on acquire and release.
+     */
+    private static final int PROBES = 4;
+
+    private final AtomicReferenceArray<HtmlServletCanvas> slots;
+    private final int mask;
+
+    /**
+     * @param size , rounded up to a power of two
+     */
+    public HtmlCanvasPool(int size) {
+        int capacity = Integer.highestOneBit(Math.max(size, PROBES) - 1) << 1;
+        this.slots = new AtomicReferenceArray<HtmlServletCanvas>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    private int stripe() {
+        final long id = Thread.currentThread().getId();
+        return (int) (id ^ (id >>> 16)) * PROBES & mask;
+    }
+
+    /**
+     * Answer a canvas from the pool, or a new one, ready to render on out.
+     * @param request
+     * @param response
+     * @param out
+     * @return HtmlServletCanvas
+     */
+    public HtmlServletCanvas acquire(HttpServletRequest request, HttpServletResponse response, Writer out) {
+        final int start = this.stripe();
+        for (int p = 0; p < PROBES; p++) {
+            final int index = (start + p) & mask;
+            HtmlServletCanvas canvas = slots.get(index);
+            if (canvas != null && slots.compareAndSet(index, canvas, null)) {
+                canvas.pooled.set(false);
+                return canvas.reset(request, response, out);
+            }
+        }
+        return new HtmlServletCanvas(request, response, out);
+    }
+
+    /**
+     * Reset the canvas and keep it for a next request. Releasing a canvas twice has no effect.
+     * The canvas must no longer be used by the caller.
+     * @param canvas
+     */
+    public void release(HtmlServletCanvas canvas) {
+        if (!canvas.pooled.compareAndSet(false, true))
+            return;
+        // drop all references to the request
+        canvas.reset(null, null, null);
+        final int start = this.stripe();
+        for (int p = 0; p < PROBES; p++) {
+            if (slots.compareAndSet((start + p) & mask, null, canvas))
+                return;
+        }
+    }
+
+    /**
+     * Release the canvas now or, if the request was put in asynchronous mode,
+     * when the asynchronous processing is finished.
+     * Call this on the container thread before it returns from the dispatch ; after that no listener can be added
+     * and the canvas is dropped. A canvas rendered on another thread is released with {@link #release(HtmlServletCanvas)}.
+     * @param canvas
+     */
+    public void releaseWhenDone(final HtmlServletCanvas canvas) {
+        final HttpServletRequest request = canvas.request;
+        if (request == null || !request.isAsyncStarted()) {
+            this.release(canvas);
+            return;
+        }
+        try {
+            request.getAsyncContext().addListener(new AsyncListener() {
+                public void onComplete(AsyncEvent event) throws IOException {
+                    release(canvas);
+                }
+                // the container completes the request after a timeout or error
+                public void onTimeout(AsyncEvent event) throws IOException {}
+                public void onError(AsyncEvent event) throws IOException {}
+                public void onStartAsync(AsyncEvent event) throws IOException {
+                    // wait for the next completion
+                }
+            });
+        } catch (IllegalStateException ex) {
+            // too late to listen ; leave the canvas to the garbage collector
+        }
+    }
+
+    /**
+     * @return the number of canvases available for reuse
+     */
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < slots.length(); i++) {
+            if (slots.get(i) != null)
+                size++;
+        }
+        return size;
+    }
+}
@@ -1,12 +1,15 @@
 package org.rendersnake.ext.servlet;
 
+import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.rendersnake.HtmlCanvas;
+import org.rendersnake.internal.ChunkedWriter;
 
 /**
  * @author emicklei
@@ -22,6 +25,22 @@ public class HtmlServletCanvas extends HtmlCanvas {
      * 
      */
     public HttpServletResponse response;    
+    /**
+     * If set then the output is flushed after closing the head tag.
+     */
+    public boolean flushAfterHead = false;
+    /**
+     * Kept for reuse by a next request, see useChunkedOutput(int)
+     */
+    private ChunkedWriter chunkedWriter;
+    /**
+     * Set if the chunkedWriter is used for the current request
+     */
+    private boolean chunkedOutput = false;
+    /**
+     * Set while the receiver is in a HtmlCanvasPool
+     */
+    final AtomicBoolean pooled = new AtomicBoolean(false);
     
     /**
      * @param request
@@ -33,6 +52,49 @@ public class HtmlServletCanvas extends HtmlCanvas {
         this.response = response;
         this.out = out;
     }    
+    /**
+     * Prepare the receiver for rendering the page of another request.
+     * @param request
+     * @param response
+     * @param out
+     * @return the receiver
+     */
+    public HtmlServletCanvas reset(HttpServletRequest request, HttpServletResponse response, Writer out) {
+        super.reset(out);
+        this.request = request;
+        this.response = response;
+        this.flushAfterHead = false;
+        this.chunkedOutput = false;
+        if (out == null && chunkedWriter != null)
+            // an idle canvas must not keep the writer of a previous response
+            chunkedWriter.reset(null);
+        return this;
+    }
+    /**
+     * Buffer the output in a ChunkedWriter on the current output writer and flush it after the head.
+     * The ChunkedWriter is reused if the receiver is reset for another request.
+     * @param bufferSize , number of characters
+     * @return the ChunkedWriter
+     */
+    public ChunkedWriter useChunkedOutput(int bufferSize) {
+        if (chunkedWriter == null || chunkedWriter.getBufferSize() != bufferSize) {
+            chunkedWriter = new ChunkedWriter(out, bufferSize);
+        } else {
+            chunkedWriter.reset(out);
+        }
+        this.out = chunkedWriter;
+        this.flushAfterHead = true;
+        this.chunkedOutput = true;
+        return chunkedWriter;
+    }
+    /**
+     * Answer the ChunkedWriter that buffers the output of the current request,
+     * also while an open tag is pending.
+     * @return the ChunkedWriter or null if useChunkedOutput(int) was not called since the last reset
+     */
+    public ChunkedWriter getChunkedWriter() {
+        return chunkedOutput ? chunkedWriter : null;
+    }
     /**
      * Answer whether this html was created for an Ajax Http Request
      */
@@ -42,6 +104,16 @@ public class HtmlServletCanvas extends HtmlCanvas {
     public boolean hasAjaxRequest() {
         return request != null && request.getHeader("x-requested-with").equals("XMLHttpRequest");
     }
+    /**
+     * Close the head tag and flush the output if flushAfterHead is set.
+     */
+    @Override
+    public HtmlCanvas _head() throws IOException {
+        super._head();
+        if (flushAfterHead)
+            this.flushPoint();
+        return this;
+    }
     /* (non-Javadoc)
      * @see org.rendersnake.HtmlCanvas#createLocalCanvas()
      */
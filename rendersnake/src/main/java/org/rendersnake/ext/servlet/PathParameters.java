@@ -0,0 +1,129 @@
+package org.rendersnake.ext.servlet;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.rendersnake.internal.ContextMap;
+
+/**
+ * PathParameters is a read-only ContextMap with the values of the parameters of a matched route.
+ * Names are shared by all matches of the same route ; a lookup is a scan of these few names.
+ *
+ * @see RouteTable
+ * @author emicklei
+ */
+public class PathParameters implements ContextMap {
+    /**
+     * Parameters of a route without parameters.
+     */
+    public static final PathParameters EMPTY = new PathParameters(new String[0], new String[0]);
+
+    private final String[] names;
+    private final String[] values;
+
+    /**
+     * @param names , not null
+     * @param values , at least as long as names
+     */
+    public PathParameters(String[] names, String[] values) {
+        this.names = names;
+        this.values = values;
+    }
+
+    private int indexOf(String key) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(key))
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the number of parameters
+     */
+    public int size() {
+        return names.length;
+    }
+
+    public String getString(String key, String... optional) {
+        int index = this.indexOf(key);
+        if (index == -1)
+            return (optional == null || optional.length == 0) ? null : optional[0];
+        return values[index];
+    }
+
+    public Integer getInteger(String key, Integer... optional) {
+        String value = this.getString(key);
+        if (value == null || value.length() == 0)
+            return (optional == null || optional.length == 0) ? null : optional[0];
+        return Integer.valueOf(value);
+    }
+
+    public Long getLong(String key, Long... optional) {
+        String value = this.getString(key);
+        if (value == null || value.length() == 0)
+            return (optional == null || optional.length == 0) ? null : optional[0];
+        return Long.valueOf(value);
+    }
+
+    public Float getFloat(String key, Float... optional) {
+        String value = this.getString(key);
+        if (value == null || value.length() == 0)
+            return (optional == null || optional.length == 0) ? null : optional[0];
+        return Float.valueOf(value);
+    }
+
+    public Boolean getBoolean(String key, Boolean... optional) {
+        String value = this.getString(key);
+        if (value == null || value.length() == 0)
+            return (optional == null || optional.length == 0) ? null : optional[0];
+        return Boolean.valueOf(value);
+    }
+
+    public Object getObject(String key, Object... optional) {
+        int index = this.indexOf(key);
+        if (index == -1)
+            return (optional == null || optional.length == 0) ? null : optional[0];
+        return values[index];
+    }
+
+    public ContextMap withBoolean(String key, Boolean trueOrFalse) {
+        throw new UnsupportedOperationException("map is read-only");
+    }
+
+    public ContextMap withLong(String key, Long aLong) {
+        throw new UnsupportedOperationException("map is read-only");
+    }
+
+    public ContextMap withFloat(String key, Float aFloat) {
+        throw new UnsupportedOperationException("map is read-only");
+    }
+
+    public ContextMap withInteger(String key, Integer anInteger) {
+        throw new UnsupportedOperationException("map is read-only");
+    }
+
+    public ContextMap withObject(String key, Object value) {
+        throw new UnsupportedOperationException("map is read-only");
+    }
+
+    public ContextMap withString(String key, String value) {
+        throw new UnsupportedOperationException("map is read-only");
+    }
+
+    public Object clear(String key) {
+        throw new UnsupportedOperationException("map is read-only");
+    }
+
+    public Map<Object, Object> toMap() {
+        HashMap<Object, Object> map = new HashMap<Object, Object>();
+        for (int i = 0; i < names.length; i++)
+            map.put(names[i], values[i]);
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return "PathParameters" + this.toMap();
+    }
+}
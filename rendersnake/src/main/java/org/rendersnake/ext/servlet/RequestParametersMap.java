@@ -81,8 +81,8 @@ public class RequestParametersMap implements ContextMap {
         throw new UnsupportedOperationException("map is read-only");
     }
     
-    @SuppressWarnings("unchecked")
+    @SuppressWarnings({ "unchecked", "rawtypes" })
     public Map<Object, Object> toMap() {
-        return request.getParameterMap();
+        return (Map) request.getParameterMap();
     }    
 }
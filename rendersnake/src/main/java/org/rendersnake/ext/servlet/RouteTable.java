@@ -0,0 +1,225 @@
+package org.rendersnake.ext.servlet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RouteTable maps request paths to targets using patterns with literal, parameter and wildcard segments.
+ * <pre>
+ * /home              literal
+ * /users/{id}/edit   the second segment is the value of parameter "id"
+ * /files/*           the remainder of the path (including slashes) is the value of parameter "*"
+ * </pre>
+ * Patterns are compiled into a tree of segments. A path is matched segment by segment without regular expressions ;
+ * on each segment a literal is preferred over a parameter and a parameter over a wildcard.
+ * Paths of routes without parameters are found with a single lookup.
+ * <p>
+ * Routes are added before matching starts (e.g. in Servlet.init) ; matching is then thread-safe.
+ * </p>
+ *
+ * @author emicklei
+ */
+public class RouteTable<T> {
+    /**
+     * Pattern segment that matches the remainder of a path ; also the name of its parameter.
+     */
+    public static final String WILDCARD = "*";
+
+    /**
+     * Match is the result of matching a path.
+     */
+    public static final class Match<T> {
+        private final Route<T> route;
+        private final PathParameters parameters;
+
+        Match(Route<T> route, PathParameters parameters) {
+            this.route = route;
+            this.parameters = parameters;
+        }
+        public T getTarget() {
+            return route.target;
+        }
+        public String getPattern() {
+            return route.pattern;
+        }
+        /**
+         * @return the values of the parameters in the path ; empty if the pattern has none
+         */
+        public PathParameters getParameters() {
+            return parameters;
+        }
+    }
+
+    static final class Route<T> {
+        final String pattern;
+        final T target;
+        final String[] names;
+        // shared by all matches of a route without parameters
+        final Match<T> staticMatch;
+
+        Route(String pattern, T target, String[] names) {
+            this.pattern = pattern;
+            this.target = target;
+            this.names = names;
+            this.staticMatch = names.length == 0 ? new Match<T>(this, PathParameters.EMPTY) : null;
+        }
+    }
+
+    static final class Node<T> {
+        Map<String, Node<T>> literals;
+        Node<T> parameter;
+        Route<T> route;
+        Route<T> wildcard;
+    }
+
+    private final Node<T> root = new Node<T>();
+    private final Map<String, Route<T>> staticRoutes = new HashMap<String, Route<T>>();
+    private int maxParameters = 0;
+    private int size = 0;
+
+    /**
+     * Add a route ; replace the route with the same pattern.
+     *
+     * @param pattern , not null
+     * @param target , not null
+     * @return the target of the replaced route or null
+     */
+    public T add(String pattern, T target) {
+        if (pattern == null)
+            throw new IllegalArgumentException("pattern == null");
+        if (target == null)
+            throw new IllegalArgumentException("target == null");
+        List<String> names = new ArrayList<String>();
+        List<String> segments = segmentsOf(pattern);
+        Node<T> node = root;
+        boolean wildcard = false;
+        for (int s = 0; s < segments.size(); s++) {
+            String segment = segments.get(s);
+            if (WILDCARD.equals(segment)) {
+                if (s != segments.size() - 1)
+                    throw new IllegalArgumentException("wildcard must be the last segment:" + pattern);
+                names.add(WILDCARD);
+                wildcard = true;
+            } else if (segment.length() > 2 && segment.charAt(0) == '{' && segment.charAt(segment.length() - 1) == '}') {
+                names.add(segment.substring(1, segment.length() - 1));
+                if (node.parameter == null)
+                    node.parameter = new Node<T>();
+                node = node.parameter;
+            } else {
+                if (node.literals == null)
+                    node.literals = new HashMap<String, Node<T>>();
+                Node<T> next = node.literals.get(segment);
+                if (next == null) {
+                    next = new Node<T>();
+                    node.literals.put(segment, next);
+                }
+                node = next;
+            }
+        }
+        Route<T> route = new Route<T>(pattern, target, names.toArray(new String[names.size()]));
+        Route<T> replaced;
+        if (wildcard) {
+            replaced = node.wildcard;
+            node.wildcard = route;
+        } else {
+            replaced = node.route;
+            node.route = route;
+        }
+        if (names.isEmpty())
+            staticRoutes.put(pattern.startsWith("/") ? pattern : "/" + pattern, route);
+        maxParameters = Math.max(maxParameters, names.size());
+        if (replaced == null) {
+            size++;
+            return null;
+        }
+        return replaced.target;
+    }
+
+    private static List<String> segmentsOf(String pattern) {
+        List<String> segments = new ArrayList<String>();
+        int start = pattern.startsWith("/") ? 1 : 0;
+        while (start <= pattern.length() && !(start == pattern.length() && segments.isEmpty())) {
+            int end = pattern.indexOf('/', start);
+            if (end == -1)
+                end = pattern.length();
+            segments.add(pattern.substring(start, end));
+            start = end + 1;
+        }
+        return segments;
+    }
+
+    /**
+     * @param pathOrNull , e.g. request.getPathInfo()
+     * @return the Match of the route for the path or null if none
+     */
+    public Match<T> match(String pathOrNull) {
+        final String path = pathOrNull == null ? "" : pathOrNull;
+        Route<T> route = staticRoutes.get(path);
+        if (route != null)
+            return route.staticMatch;
+        final String[] values = new String[maxParameters];
+        final int start = path.startsWith("/") ? 1 : 0;
+        if (start == path.length())
+            route = this.matchEnd(root, values, 0);
+        else
+            route = this.match(root, path, start, values, 0);
+        if (route == null)
+            return null;
+        if (route.staticMatch != null)
+            return route.staticMatch;
+        return new Match<T>(route, new PathParameters(route.names, values));
+    }
+
+    /**
+     * @param path
+     * @param start , begin of the segment to match ; beyond the length if the path is consumed
+     * @param count , number of parameter values found
+     */
+    private Route<T> match(Node<T> node, String path, int start, String[] values, int count) {
+        if (start > path.length())
+            return this.matchEnd(node, values, count);
+        int end = path.indexOf('/', start);
+        if (end == -1)
+            end = path.length();
+        String segment = null;
+        if (node.literals != null) {
+            segment = path.substring(start, end);
+            Node<T> next = node.literals.get(segment);
+            if (next != null) {
+                Route<T> route = this.match(next, path, end + 1, values, count);
+                if (route != null)
+                    return route;
+            }
+        }
+        if (node.parameter != null && end > start) {
+            values[count] = segment == null ? path.substring(start, end) : segment;
+            Route<T> route = this.match(node.parameter, path, end + 1, values, count + 1);
+            if (route != null)
+                return route;
+        }
+        if (node.wildcard != null) {
+            values[count] = path.substring(start);
+            return node.wildcard;
+        }
+        return null;
+    }
+
+    private Route<T> matchEnd(Node<T> node, String[] values, int count) {
+        if (node.route != null)
+            return node.route;
+        if (node.wildcard != null) {
+            values[count] = "";
+            return node.wildcard;
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of routes
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -5,6 +5,8 @@ import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
 import org.rendersnake.HtmlCanvas;
+import org.rendersnake.LazyValue;
+import org.rendersnake.PageContext;
 /**
  * ServletUtils is a helper class for accessing specific state of a HtmlServletCanvas.
  * 
@@ -58,4 +60,39 @@ public class ServletUtils {
             return false; // we don't know actually
         }   
     }
+    /**
+     * Store the request data in the context: path, uri with query, session, parameters and headers.
+     * Each value is computed when a component reads it for the first time.
+     *
+     * @param request
+     * @param context
+     */
+    public static void setupPageContext(final HttpServletRequest request, PageContext context) {
+        context.withLazy(PageContext.REQUEST_PATH, new LazyValue<String>() {
+            protected String compute() {
+                return request.getPathTranslated();
+            }
+        });
+        context.withLazy(PageContext.REQUEST_URIQ, new LazyValue<String>() {
+            protected String compute() {
+                String q = request.getQueryString();
+                return request.getRequestURI() + (q == null ? "" : "?" + q);
+            }
+        });
+        context.withLazy(PageContext.SESSION, new LazyValue<SessionAttributesMap>() {
+            protected SessionAttributesMap compute() {
+                return new SessionAttributesMap(request);
+            }
+        });
+        context.withLazy(PageContext.REQUEST_PARAMETERS, new LazyValue<RequestParametersMap>() {
+            protected RequestParametersMap compute() {
+                return new RequestParametersMap(request);
+            }
+        });
+        context.withLazy(PageContext.REQUEST_HEADERS, new LazyValue<RequestHeadersMap>() {
+            protected RequestHeadersMap compute() {
+                return new RequestHeadersMap(request);
+            }
+        });
+    }
 }
@@ -4,13 +4,11 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.rendersnake.HtmlCanvas;
-import org.rendersnake.PageContext;
-import org.rendersnake.ext.servlet.RequestHeadersMap;
-import org.rendersnake.ext.servlet.RequestParametersMap;
-import org.rendersnake.ext.servlet.SessionAttributesMap;
+import org.rendersnake.ext.servlet.ServletUtils;
 import org.springframework.core.MethodParameter;
 import org.springframework.web.bind.support.WebArgumentResolver;
 import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
 /**
  * HtmlCanvasArgumentResolver is a Spring Helper that is used
  * to prepare html arguments before invoking a Controller method.
@@ -42,16 +40,15 @@ public class HtmlCanvasArgumentResolver implements WebArgumentResolver {
 		HttpServletResponse response = (HttpServletResponse)(webRequest.getNativeResponse());
 		response.setContentType("text/html"); // controllers may override this
         final HtmlCanvas canvas = HtmlCanvasFactory.createCanvas(request,response,response.getWriter());        
-		setupPageContext(request, canvas.getPageContext());                
+		ServletUtils.setupPageContext(request, canvas.getPageContext());                
+        if (HtmlCanvasFactory.POOLING_ENABLED) {
+            // the controller renders on the canvas ; release it when the request is done
+            webRequest.registerDestructionCallback(HtmlCanvas.class.getName(), new Runnable() {
+                public void run() {
+                    HtmlCanvasFactory.release(canvas);
+                }
+            }, RequestAttributes.SCOPE_REQUEST);
+        }
 		return canvas;
 	}
-
-    static void setupPageContext(HttpServletRequest request, PageContext context) {
-        String q = request.getQueryString();
-        context.withObject(PageContext.REQUEST_PATH, request.getPathTranslated());
-        context.withObject(PageContext.REQUEST_URIQ, request.getRequestURI() + (q == null ? "" : "?" + q));
-        context.withObject(PageContext.SESSION, new SessionAttributesMap(request));
-		context.withObject(PageContext.REQUEST_PARAMETERS, new RequestParametersMap(request));	
-        context.withObject(PageContext.REQUEST_HEADERS, new RequestHeadersMap(request));
-    }
 }
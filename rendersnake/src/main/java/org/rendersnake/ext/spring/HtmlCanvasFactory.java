@@ -1,11 +1,16 @@
 package org.rendersnake.ext.spring;
 
+import java.io.IOException;
 import java.io.Writer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.rendersnake.HtmlCanvas;
+import org.rendersnake.internal.ChunkedWriter;
+import org.rendersnake.ext.servlet.HtmlCanvasPool;
 import org.rendersnake.ext.servlet.HtmlServletCanvas;
 import org.rendersnake.tools.DebugHtmlCanvas;
 /**
@@ -16,6 +21,29 @@ import org.rendersnake.tools.DebugHtmlCanvas;
 public class HtmlCanvasFactory {
     public static String INSPECT_QUERY_PARAM = "inspect";
     public static boolean DEBUG_ENABLED = true;
+    /**
+     * If set then pages rendered by the GuiceComponentServlet and RenderableView are streamed
+     * in chunks and flushed after the head.
+     */
+    public static boolean STREAMING_ENABLED = false;
+    /**
+     * Number of characters buffered by a streaming canvas before a chunk is written to the response.
+     */
+    public static int STREAMING_BUFFER_SIZE = ChunkedWriter.DEFAULT_BUFFER_SIZE;
+
+    /**
+     * If set then canvases are taken from and returned to a pool ; see {@link #release(HtmlCanvas)}.
+     * Components must not keep a reference to the canvas after rendering.
+     */
+    public static boolean POOLING_ENABLED = false;
+    /**
+     * Number of canvases kept for reuse.
+     */
+    public static int POOL_SIZE = 64;
+
+    private static volatile HtmlCanvasPool POOL;
+
+    private static final Logger LOG = Logger.getLogger("org.rendersnake.ext.spring");
 
     /**
      * @param request
@@ -30,8 +58,111 @@ public class HtmlCanvasFactory {
         if (DEBUG_ENABLED && (request.getParameter(INSPECT_QUERY_PARAM) != null)) {
             html = new DebugHtmlCanvas(request, response, out);
         } else {
-            html = new HtmlServletCanvas(request, response, out);
+            html = POOLING_ENABLED ? getPool().acquire(request, response, out) : new HtmlServletCanvas(request, response, out);
         }
         return html;
     }
+
+    /**
+     * Answer the pool of canvases ; create one of POOL_SIZE if absent.
+     * @return HtmlCanvasPool
+     */
+    public static HtmlCanvasPool getPool() {
+        HtmlCanvasPool pool = POOL;
+        if (pool == null) {
+            synchronized (HtmlCanvasFactory.class) {
+                if (POOL == null)
+                    POOL = new HtmlCanvasPool(POOL_SIZE);
+                pool = POOL;
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Return the canvas to the pool if pooling is enabled. If the request is asynchronous then
+     * the canvas is returned when the request is completed.
+     * Debug canvases are never pooled.
+     *
+     * @param html
+     */
+    public static void release(HtmlCanvas html) {
+        if (POOLING_ENABLED && html != null && html.getClass() == HtmlServletCanvas.class)
+            getPool().releaseWhenDone((HtmlServletCanvas) html);
+    }
+
+    /**
+     * Create a canvas that writes to a ChunkedWriter on out and that flushes after the head.
+     * Call {@link #finish(HtmlCanvas)} after rendering to write the remaining output.
+     *
+     * @param request
+     * @param response
+     * @param out
+     * @return
+     */
+    public static HtmlCanvas createStreamingCanvas(HttpServletRequest request, HttpServletResponse response, Writer out) {
+        HtmlCanvas html = createCanvas(request, response, out);
+        ((HtmlServletCanvas) html).useChunkedOutput(STREAMING_BUFFER_SIZE);
+        return html;
+    }
+
+    /**
+     * Create a streaming canvas if STREAMING_ENABLED is set, a regular one otherwise.
+     * Call {@link #finish(HtmlCanvas)} after rendering.
+     *
+     * @param request
+     * @param response
+     * @return
+     * @throws IOException
+     */
+    public static HtmlCanvas createPageCanvas(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (STREAMING_ENABLED)
+            return createStreamingCanvas(request, response, response.getWriter());
+        return createCanvas(request, response, response.getWriter());
+    }
+
+    /**
+     * Write the remaining output of a streaming canvas and log its time-to-first-byte and total render time.
+     * Does nothing else for other canvases. Then release the canvas.
+     *
+     * @param html
+     * @throws IOException
+     */
+    public static void finish(HtmlCanvas html) throws IOException {
+        try {
+            finishOutput(html);
+        } finally {
+            release(html);
+        }
+    }
+
+    /**
+     * Write the remaining output of a streaming canvas and log its time-to-first-byte and total render time.
+     * The canvas is not released.
+     *
+     * @param html
+     * @throws IOException
+     */
+    public static void finishOutput(HtmlCanvas html) throws IOException {
+        if (!(html instanceof HtmlServletCanvas))
+            return;
+        HtmlServletCanvas servletCanvas = (HtmlServletCanvas) html;
+        ChunkedWriter chunked = servletCanvas.getChunkedWriter();
+        if (chunked == null)
+            return;
+        chunked.finish();
+        if (LOG.isLoggable(Level.FINE))
+            LOG.fine(servletCanvas.request.getRequestURI() + " " + chunked);
+    }
+
+    /**
+     * Return the canvas to the pool now if pooling is enabled, also if its request is asynchronous.
+     * Use this after rendering on a thread other than the container's ; the canvas must no longer be used.
+     *
+     * @param html
+     */
+    public static void releaseNow(HtmlCanvas html) {
+        if (POOLING_ENABLED && html != null && html.getClass() == HtmlServletCanvas.class)
+            getPool().release((HtmlServletCanvas) html);
+    }
 }
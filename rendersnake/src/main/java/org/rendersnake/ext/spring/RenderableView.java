@@ -7,6 +7,7 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.rendersnake.HtmlCanvas;
 import org.rendersnake.Renderable;
+import org.rendersnake.ext.servlet.ServletUtils;
 import org.springframework.web.servlet.View;
 /**
  * RenderableView is used together with the RenderableViewResolver
@@ -40,9 +41,10 @@ public class RenderableView implements View {
      */
     public void render(Map<String, ?> model, HttpServletRequest request, HttpServletResponse response) throws Exception {
 
-        HtmlCanvas html = HtmlCanvasFactory.createCanvas(request, response, response.getWriter());
-        HtmlCanvasArgumentResolver.setupPageContext(request, html.getPageContext());
+        HtmlCanvas html = HtmlCanvasFactory.createPageCanvas(request, response);
+        ServletUtils.setupPageContext(request, html.getPageContext());
         html.getPageContext().attributes.putAll(model);
         html.render(component);
+        HtmlCanvasFactory.finish(html);
     }
 }
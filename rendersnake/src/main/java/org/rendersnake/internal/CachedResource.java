@@ -0,0 +1,67 @@
+package org.rendersnake.internal;
+
+import java.nio.charset.Charset;
+
+/**
+ * CachedResource holds the text content of a StringResource and, once asked for,
+ * the same content encoded as UTF-8 bytes for bulk copying to a byte-oriented output.
+ *
+ * @author emicklei
+ */
+public class CachedResource {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final String content;
+    private final long createdMillis;
+    private volatile byte[] utf8;
+
+    /**
+     * @param content , not null
+     */
+    public CachedResource(String content) {
+        this.content = content;
+        this.createdMillis = System.currentTimeMillis();
+    }
+    /**
+     * @return the text content
+     */
+    public String getContent() {
+        return content;
+    }
+    /**
+     * Answer the content encoded in UTF-8. The bytes are computed once on first access.
+     * @return byte[] , must not be modified
+     */
+    public byte[] getUtf8() {
+        byte[] bytes = utf8;
+        if (bytes == null) {
+            synchronized (this) {
+                bytes = utf8;
+                if (bytes == null) {
+                    bytes = content.getBytes(UTF8);
+                    utf8 = bytes;
+                    this.encoded(bytes.length);
+                }
+            }
+        }
+        return bytes;
+    }
+    /**
+     * Called once when the UTF-8 bytes are computed ; a cache can count these towards its size.
+     * @param byteCount
+     */
+    protected void encoded(int byteCount) {
+    }
+    /**
+     * @return the time at which this content was read
+     */
+    public long getCreatedMillis() {
+        return createdMillis;
+    }
+    /**
+     * @return the number of characters of the content
+     */
+    public int length() {
+        return content.length();
+    }
+}
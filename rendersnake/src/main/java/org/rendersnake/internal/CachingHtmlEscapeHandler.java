@@ -0,0 +1,131 @@
+package org.rendersnake.internal;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.rendersnake.HtmlAttributes;
+import org.rendersnake.HtmlCanvas;
+
+/**
+ * CachingHtmlEscapeHandler remembers the escaped form of recently written Strings.
+ * Strings are looked up by identity in a bounded, direct-mapped table ; a repeated String
+ * (e.g. a constant label or a cached product name) is not scanned again.
+ * Strings that need no escaping are remembered as clean and are written as is.
+ * <p>
+ * A String is remembered when it is seen for the second time in a row at its place in the table ;
+ * text that is written only once (e.g. user input) only costs a scan, as without caching.
+ * </p>
+ * <p>
+ * Install it for both canvas text and attribute values:
+ * </p>
+ * <pre>
+ * CachingHtmlEscapeHandler.install(1024);
+ * </pre>
+ *
+ * @author emicklei
+ */
+public class CachingHtmlEscapeHandler implements HtmlEscapeHandler {
+    /**
+     * Strings shorter than this are escaped directly ; scanning them is cheaper than a lookup.
+     */
+    public static int MIN_CACHED_LENGTH = 8;
+    /**
+     * Strings longer than this are escaped directly ; these are rarely repeated and would keep a lot of memory.
+     */
+    public static int MAX_CACHED_LENGTH = 1024;
+
+    /**
+     * Entry fields are final such that a racing reader always sees a consistent pair.
+     */
+    private static final class Entry {
+        final String text;
+        final String escaped;
+        Entry(String text, String escaped) {
+            this.text = text;
+            this.escaped = escaped;
+        }
+    }
+
+    private final Entry[] entries;
+    /**
+     * The last String that missed at each index.
+     */
+    private final String[] sightings;
+    private final int mask;
+
+    /**
+     * @param capacity , the number of remembered Strings ; rounded up to a power of two
+     */
+    public CachingHtmlEscapeHandler(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.entries = new Entry[size];
+        this.sightings = new String[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Create a CachingHtmlEscapeHandler and use it for HtmlCanvas.write(String) and HtmlAttributes values.
+     * @param capacity
+     * @return the installed handler
+     */
+    public static CachingHtmlEscapeHandler install(int capacity) {
+        CachingHtmlEscapeHandler handler = new CachingHtmlEscapeHandler(capacity);
+        HtmlCanvas.HTML_ESCAPE_HANDLER = handler;
+        HtmlAttributes.ESCAPE_CACHE = handler;
+        return handler;
+    }
+
+    public void escapeHtml(Writer out, String text) throws IOException {
+        final int length = text.length();
+        if (length >= MIN_CACHED_LENGTH && length <= MAX_CACHED_LENGTH) {
+            final String escaped = this.cachedOrNull(text);
+            if (escaped != null) {
+                out.write(escaped);
+                return;
+            }
+        }
+        // a miss is streamed ; no String is created
+        HtmlEscaper.escape(out, text);
+    }
+
+    /**
+     * Answer the escaped form of the text ; the text itself if it needs no escaping.
+     * @param text , not null
+     * @return String
+     */
+    public String escaped(String text) {
+        if (text.length() <= MAX_CACHED_LENGTH) {
+            final String escaped = this.cachedOrNull(text);
+            if (escaped != null)
+                return escaped;
+        }
+        return escape(text);
+    }
+
+    /**
+     * Answer the remembered escaped form of the text ; remember it if seen before.
+     * @return String | null if the text is seen for the first time
+     */
+    private String cachedOrNull(String text) {
+        final int index = System.identityHashCode(text) & mask;
+        final Entry entry = entries[index];
+        if (entry != null && entry.text == text)
+            return entry.escaped;
+        if (sightings[index] != text) {
+            sightings[index] = text;
+            return null;
+        }
+        final String escaped = escape(text);
+        entries[index] = new Entry(text, escaped);
+        return escaped;
+    }
+
+    private static String escape(String text) {
+        final int length = HtmlEscaper.escapedLength(text);
+        if (length == text.length())
+            return text;
+        char[] escaped = new char[length];
+        HtmlEscaper.escape(text, escaped, 0);
+        return new String(escaped);
+    }
+}
@@ -0,0 +1,221 @@
+package org.rendersnake.internal;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * ChunkedWriter is a Writer that collects characters in its own buffer and transfers them
+ * to a target Writer in chunks: when the buffer is full or at a flush point.
+ * A flush point also flushes the target such that the bytes are sent to the client.
+ * <p>
+ * It measures the time from creation to the first chunk (time-to-first-byte)
+ * and to {@link #finish()} (total render time).
+ * </p>
+ *
+ * This class is not thread-safe.
+ *
+ * @author emicklei
+ */
+public class ChunkedWriter extends Writer {
+    /**
+     * Configurable parameter for the size of the char buffer.
+     */
+    public static int DEFAULT_BUFFER_SIZE = 8192;
+
+    private Writer target;
+    private final char[] buffer;
+    private int position = 0;
+
+    private long startNanos;
+    private long firstChunkNanos = -1;
+    private long finishNanos = -1;
+    private int chunkCount = 0;
+    private int flushCount = 0;
+    private long charsWritten = 0;
+
+    /**
+     * @param target
+     */
+    public ChunkedWriter(Writer target) {
+        this(target, DEFAULT_BUFFER_SIZE);
+    }
+    /**
+     * @param target , not null
+     * @param bufferSize , at least 1
+     */
+    public ChunkedWriter(Writer target, int bufferSize) {
+        super();
+        if (target == null)
+            throw new IllegalArgumentException("target == null");
+        if (bufferSize < 1)
+            throw new IllegalArgumentException("bufferSize < 1");
+        this.target = target;
+        this.buffer = new char[bufferSize];
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Prepare the receiver for another page ; drop buffered characters and restart the clock.
+     * @param target , null to drop the previous target while the receiver is not used
+     * @return the receiver
+     */
+    public ChunkedWriter reset(Writer target) {
+        this.target = target;
+        this.position = 0;
+        this.startNanos = System.nanoTime();
+        this.firstChunkNanos = -1;
+        this.finishNanos = -1;
+        this.chunkCount = 0;
+        this.flushCount = 0;
+        this.charsWritten = 0;
+        return this;
+    }
+
+    /**
+     * @return the size of the buffer in characters
+     */
+    public int getBufferSize() {
+        return buffer.length;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        if (position == buffer.length)
+            this.writeChunk();
+        buffer[position++] = (char) c;
+    }
+
+    @Override
+    public void write(String text) throws IOException {
+        this.write(text, 0, text.length());
+    }
+
+    @Override
+    public void write(String text, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (position == buffer.length)
+                this.writeChunk();
+            final int n = Math.min(length, buffer.length - position);
+            text.getChars(offset, offset + n, buffer, position);
+            position += n;
+            offset += n;
+            length -= n;
+        }
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+        if (length >= buffer.length) {
+            // larger than the buffer, no need to copy
+            this.writeChunk();
+            this.transfer(chars, offset, length);
+            return;
+        }
+        if (length > buffer.length - position)
+            this.writeChunk();
+        System.arraycopy(chars, offset, buffer, position, length);
+        position += length;
+    }
+
+    /**
+     * Transfer the buffered characters to the target and flush it.
+     */
+    @Override
+    public void flush() throws IOException {
+        this.flushPoint();
+    }
+
+    /**
+     * Transfer the buffered characters to the target and flush it.
+     * @throws IOException
+     */
+    public void flushPoint() throws IOException {
+        if (target == null)
+            throw new IllegalStateException("no target, writer was reset");
+        this.writeChunk();
+        target.flush();
+        flushCount++;
+    }
+
+    /**
+     * Transfer the remaining characters, flush the target and stop the clock.
+     * The target is not closed.
+     * @throws IOException
+     */
+    public void finish() throws IOException {
+        if (finishNanos != -1)
+            return;
+        this.flushPoint();
+        finishNanos = System.nanoTime();
+    }
+
+    /**
+     * Finish and close the target.
+     */
+    @Override
+    public void close() throws IOException {
+        this.finish();
+        target.close();
+    }
+
+    private void writeChunk() throws IOException {
+        if (position == 0)
+            return;
+        this.transfer(buffer, 0, position);
+        position = 0;
+    }
+
+    private void transfer(char[] chars, int offset, int length) throws IOException {
+        if (target == null)
+            throw new IllegalStateException("no target, writer was reset");
+        if (firstChunkNanos == -1)
+            firstChunkNanos = System.nanoTime();
+        target.write(chars, offset, length);
+        chunkCount++;
+        charsWritten += length;
+    }
+
+    /**
+     * @return nanoseconds from creation until the first characters were transferred ; -1 if none yet
+     */
+    public long getTimeToFirstByteNanos() {
+        return firstChunkNanos == -1 ? -1 : firstChunkNanos - startNanos;
+    }
+    /**
+     * @return nanoseconds from creation until finish ; -1 if not finished
+     */
+    public long getTotalNanos() {
+        return finishNanos == -1 ? -1 : finishNanos - startNanos;
+    }
+    /**
+     * @return the number of write operations on the target
+     */
+    public int getChunkCount() {
+        return chunkCount;
+    }
+    /**
+     * @return the number of flushes of the target
+     */
+    public int getFlushCount() {
+        return flushCount;
+    }
+    /**
+     * @return the number of characters transferred to the target
+     */
+    public long getCharsWritten() {
+        return charsWritten;
+    }
+    /**
+     * @return the number of characters that are buffered
+     */
+    public int getBufferedCount() {
+        return position;
+    }
+
+    @Override
+    public String toString() {
+        return "ChunkedWriter(ttfb=" + this.getTimeToFirstByteNanos() / 1000 + "us,total="
+                + this.getTotalNanos() / 1000 + "us,chunks=" + chunkCount + ",flushes=" + flushCount
+                + ",chars=" + charsWritten + ")";
+    }
+}
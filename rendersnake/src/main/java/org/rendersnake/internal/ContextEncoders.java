@@ -0,0 +1,165 @@
+package org.rendersnake.internal;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * ContextEncoders write text on a Writer encoded for a context other than HTML text:
+ * a URL component, a JavaScript string literal or a CSS string.
+ * Clean runs are written with one call ; replacements are precomputed. No Strings are created.
+ * The output of each encoder contains none of &amp; &lt; &gt; &quot; ' and is therefore
+ * also safe inside a quoted HTML attribute value.
+ *
+ * @author emicklei
+ */
+public class ContextEncoders {
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+    /**
+     * %XX per byte value.
+     */
+    private static final char[][] PERCENT = new char[256][];
+    /**
+     * \xXX per ASCII character that is escaped in a JavaScript string ; null if written as is.
+     */
+    private static final char[][] JAVASCRIPT = new char[128][];
+    /**
+     * \XX followed by a space per ASCII character that is escaped in a CSS string ; null if written as is.
+     */
+    private static final char[][] CSS = new char[128][];
+    /**
+     * Line terminators in JavaScript but not in JSON or Java.
+     */
+    private static final char LINE_SEPARATOR = 0x2028;
+    private static final char PARAGRAPH_SEPARATOR = 0x2029;
+    private static final char[] ESCAPED_LINE_SEPARATOR = { '\\', 'u', '2', '0', '2', '8' };
+    private static final char[] ESCAPED_PARAGRAPH_SEPARATOR = { '\\', 'u', '2', '0', '2', '9' };
+    static {
+        for (int b = 0; b < 256; b++) {
+            PERCENT[b] = new char[] { '%', HEX[b >> 4], HEX[b & 0xF] };
+        }
+        for (int c = 0; c < 128; c++) {
+            if (c < 32 || c == 127 || "\"'\\/<>&=`".indexOf(c) != -1) {
+                JAVASCRIPT[c] = new char[] { '\\', 'x', HEX[c >> 4], HEX[c & 0xF] };
+            }
+            if (!isAlphaNumeric(c) && " -_.,#%!".indexOf(c) == -1) {
+                CSS[c] = new char[] { '\\', HEX[c >> 4], HEX[c & 0xF], ' ' };
+            }
+        }
+    }
+
+    private ContextEncoders() {
+    }
+
+    private static boolean isAlphaNumeric(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+
+    private static boolean isUnreserved(char c) {
+        return c < 128 && (isAlphaNumeric(c) || c == '-' || c == '.' || c == '_' || c == '~');
+    }
+
+    /**
+     * Write the text as a URL component (RFC 3986) ; all but unreserved characters are
+     * percent-encoded as UTF-8 bytes. Space becomes %20.
+     * @param out
+     * @param text
+     * @throws IOException
+     */
+    public static void encodeUrlComponent(Writer out, String text) throws IOException {
+        final int length = text.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (isUnreserved(c))
+                continue;
+            if (i > start)
+                out.write(text, start, i - start);
+            int codePoint = c;
+            if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                codePoint = Character.toCodePoint(c, text.charAt(++i));
+            } else if (Character.isSurrogate(c)) {
+                codePoint = '?';
+            }
+            writePercentEncoded(out, codePoint);
+            start = i + 1;
+        }
+        if (length > start)
+            out.write(text, start, length - start);
+    }
+
+    private static void writePercentEncoded(Writer out, int codePoint) throws IOException {
+        if (codePoint < 0x80) {
+            out.write(PERCENT[codePoint]);
+        } else if (codePoint < 0x800) {
+            out.write(PERCENT[0xC0 | (codePoint >> 6)]);
+            out.write(PERCENT[0x80 | (codePoint & 0x3F)]);
+        } else if (codePoint < 0x10000) {
+            out.write(PERCENT[0xE0 | (codePoint >> 12)]);
+            out.write(PERCENT[0x80 | ((codePoint >> 6) & 0x3F)]);
+            out.write(PERCENT[0x80 | (codePoint & 0x3F)]);
+        } else {
+            out.write(PERCENT[0xF0 | (codePoint >> 18)]);
+            out.write(PERCENT[0x80 | ((codePoint >> 12) & 0x3F)]);
+            out.write(PERCENT[0x80 | ((codePoint >> 6) & 0x3F)]);
+            out.write(PERCENT[0x80 | (codePoint & 0x3F)]);
+        }
+    }
+
+    /**
+     * Write the text for use inside a quoted JavaScript string literal.
+     * Quotes, backslash, control characters and characters that could end a script block or
+     * attribute are written as \xXX ; line and paragraph separators as unicode escapes. Other characters are written as is.
+     * @param out
+     * @param text
+     * @throws IOException
+     */
+    public static void encodeJavaScriptString(Writer out, String text) throws IOException {
+        final int length = text.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            char[] replacement;
+            if (c < 128) {
+                replacement = JAVASCRIPT[c];
+                if (replacement == null)
+                    continue;
+            } else if (c == LINE_SEPARATOR) {
+                replacement = ESCAPED_LINE_SEPARATOR;
+            } else if (c == PARAGRAPH_SEPARATOR) {
+                replacement = ESCAPED_PARAGRAPH_SEPARATOR;
+            } else {
+                continue;
+            }
+            if (i > start)
+                out.write(text, start, i - start);
+            out.write(replacement);
+            start = i + 1;
+        }
+        if (length > start)
+            out.write(text, start, length - start);
+    }
+
+    /**
+     * Write the text for use inside a quoted CSS string or url(...).
+     * ASCII characters other than letters, digits and " -_.,#%!" are written as \XX followed by a space.
+     * Other characters are written as is.
+     * @param out
+     * @param text
+     * @throws IOException
+     */
+    public static void encodeCssString(Writer out, String text) throws IOException {
+        final int length = text.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= 128 || CSS[c] == null)
+                continue;
+            if (i > start)
+                out.write(text, start, i - start);
+            out.write(CSS[c]);
+            start = i + 1;
+        }
+        if (length > start)
+            out.write(text, start, length - start);
+    }
+}
@@ -0,0 +1,145 @@
+package org.rendersnake.internal;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * HtmlEscaper is a table-driven HtmlEscapeHandler that replaces the characters &amp; &lt; &gt; &quot; and '
+ * by their entities. All other characters, including non-ASCII, are written as is.
+ * <p>
+ * Text is scanned with a lookup table for the first character that needs escaping ;
+ * clean runs are written with one Writer.write(String,off,len) call and replacements are precomputed.
+ * The same escaping is valid for element content and for (quoted) attribute values.
+ * </p>
+ *
+ * @author emicklei
+ */
+public class HtmlEscaper implements HtmlEscapeHandler {
+    /**
+     * Shared instance ; HtmlEscaper is stateless.
+     */
+    public static final HtmlEscaper INSTANCE = new HtmlEscaper();
+    /**
+     * Replacement per ASCII character ; null if the character is written as is.
+     */
+    private static final char[][] REPLACEMENTS = new char[128][];
+    static {
+        REPLACEMENTS['&'] = "&amp;".toCharArray();
+        REPLACEMENTS['<'] = "&lt;".toCharArray();
+        REPLACEMENTS['>'] = "&gt;".toCharArray();
+        REPLACEMENTS['"'] = "&quot;".toCharArray();
+        REPLACEMENTS['\''] = "&#39;".toCharArray();
+    }
+    /**
+     * The longest replacement.
+     */
+    public static final int MAX_REPLACEMENT_LENGTH = 6;
+
+    /**
+     * Answer the index of the first character that needs escaping.
+     * @param text
+     * @param from
+     * @param end , exclusive
+     * @return index | -1 if none
+     */
+    public static int indexOfEscapable(String text, int from, int end) {
+        final char[][] table = REPLACEMENTS;
+        for (int i = from; i < end; i++) {
+            final char c = text.charAt(i);
+            if (c < 128 && table[c] != null)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @param text
+     * @return whether the text can be written without escaping
+     */
+    public static boolean isClean(String text) {
+        return indexOfEscapable(text, 0, text.length()) == -1;
+    }
+
+    /**
+     * @param text
+     * @return the number of characters of the escaped text
+     */
+    public static int escapedLength(String text) {
+        final char[][] table = REPLACEMENTS;
+        final int length = text.length();
+        int escaped = length;
+        for (int i = 0; i < length; i++) {
+            final char c = text.charAt(i);
+            if (c < 128 && table[c] != null)
+                escaped += table[c].length - 1;
+        }
+        return escaped;
+    }
+
+    public void escapeHtml(Writer out, String text) throws IOException {
+        escape(out, text, 0, text.length());
+    }
+
+    /**
+     * Write the text on the writer, escaping where needed.
+     * @param out
+     * @param text , not null
+     * @throws IOException
+     */
+    public static void escape(Writer out, String text) throws IOException {
+        escape(out, text, 0, text.length());
+    }
+
+    /**
+     * Write part of the text on the writer, escaping where needed.
+     * @param out
+     * @param text , not null
+     * @param off , index of the first character
+     * @param len , number of characters
+     * @throws IOException
+     */
+    public static void escape(Writer out, String text, int off, int len) throws IOException {
+        final int end = off + len;
+        int start = off;
+        int next = indexOfEscapable(text, start, end);
+        if (next == -1) {
+            // common case
+            out.write(text, off, len);
+            return;
+        }
+        final char[][] table = REPLACEMENTS;
+        while (next != -1) {
+            if (next > start)
+                out.write(text, start, next - start);
+            out.write(table[text.charAt(next)]);
+            start = next + 1;
+            next = indexOfEscapable(text, start, end);
+        }
+        if (end > start)
+            out.write(text, start, end - start);
+    }
+
+    /**
+     * Copy the text into a char array, escaping where needed.
+     * The array must have room for escapedLength(text) characters after index n.
+     * @param text
+     * @param into
+     * @param n , index of the first character to put
+     * @return the index after the last character put
+     */
+    public static int escape(String text, char[] into, int n) {
+        final char[][] table = REPLACEMENTS;
+        final int length = text.length();
+        for (int i = 0; i < length; i++) {
+            final char c = text.charAt(i);
+            final char[] replacement = c < 128 ? table[c] : null;
+            if (replacement == null) {
+                into[n++] = c;
+            } else {
+                System.arraycopy(replacement, 0, into, n, replacement.length);
+                n += replacement.length;
+            }
+        }
+        return n;
+    }
+}
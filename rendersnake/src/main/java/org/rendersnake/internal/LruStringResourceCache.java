@@ -0,0 +1,327 @@
+package org.rendersnake.internal;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LruStringResourceCache is a StringResourceCache with a maximum size.
+ * The size of a content is its number of characters plus, once these are computed, the number of its UTF-8 bytes.
+ * If adding a content exceeds that maximum then the least recently used contents are evicted.
+ * Optionally, contents expire after a time-to-live.
+ * <p>
+ * Locations are spread over segments that each have their own lock and LRU order ; threads that access
+ * different segments do not wait for each other. The maximum size is for the whole cache: if a segment has
+ * no more contents to evict then contents of other segments are evicted. A small cache has a single segment.
+ * </p>
+ * <p>
+ * Usage
+ * </p>
+ * <pre>
+ * // at most 4M characters and bytes, reload after 10 minutes
+ * StringResource.setCache(new LruStringResourceCache(4 * 1024 * 1024, 10 * 60 * 1000L));
+ * </pre>
+ *
+ * @author emicklei
+ */
+public class LruStringResourceCache implements StringResourceCache {
+    /**
+     * Intention revealing constant for a cache without expiration.
+     */
+    public static final long NO_EXPIRATION = 0;
+    /**
+     * Maximum number of segments of a cache that is created next.
+     */
+    public static int CONCURRENCY_LEVEL = 16;
+    /**
+     * A cache gets more segments only if each has at least this share of the maximum size.
+     */
+    private static final long MIN_SEGMENT_SIZE = 64 * 1024;
+
+    /**
+     * A cached content and the size it counts for.
+     */
+    private static final class Node {
+        final CachedResource resource;
+        long size;
+        Node(CachedResource resource) {
+            this.resource = resource;
+            this.size = resource.length();
+        }
+    }
+
+    /**
+     * Segment is the LRU order of part of the locations ; the size is accounted for the whole cache.
+     */
+    private final class Segment {
+        /**
+         * Access-ordered ; guarded by this.
+         */
+        final LinkedHashMap<String, Node> map = new LinkedHashMap<String, Node>(16, 0.75f, true);
+        long chars = 0;
+        long hits = 0;
+        long misses = 0;
+        long evictions = 0;
+
+        synchronized CachedResource get(String location) {
+            Node node = map.get(location);
+            if (node != null && isExpired(node.resource)) {
+                this.remove(location);
+                evictions++;
+                node = null;
+            }
+            if (node == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+            return node.resource;
+        }
+
+        synchronized CachedResource put(final String location, String content) {
+            final CachedResource resource = new CachedResource(content) {
+                @Override
+                protected void encoded(int byteCount) {
+                    LruStringResourceCache.this.encoded(Segment.this, location, this, byteCount);
+                }
+            };
+            Node node = new Node(resource);
+            this.forget(map.put(location, node));
+            chars += resource.length();
+            size.addAndGet(node.size);
+            this.evict(location, node);
+            return resource;
+        }
+
+        synchronized CachedResource replace(String location, String content) {
+            if (!map.containsKey(location))
+                return null;
+            return this.put(location, content);
+        }
+
+        synchronized void encoded(String location, CachedResource resource, int byteCount) {
+            Node node = map.get(location);
+            if (node == null || node.resource != resource)
+                return;
+            node.size += byteCount;
+            size.addAndGet(byteCount);
+            this.evict(location, node);
+        }
+
+        synchronized void remove(String location) {
+            this.forget(map.remove(location));
+        }
+
+        synchronized void clear() {
+            for (Node each : map.values())
+                size.addAndGet(-each.size);
+            map.clear();
+            chars = 0;
+        }
+
+        /**
+         * Evict the least recently used content of this segment.
+         * @return false if the segment is empty
+         */
+        synchronized boolean evictEldest() {
+            Iterator<Map.Entry<String, Node>> eldest = map.entrySet().iterator();
+            if (!eldest.hasNext())
+                return false;
+            Node evicted = eldest.next().getValue();
+            eldest.remove();
+            this.forget(evicted);
+            evictions++;
+            return true;
+        }
+
+        private void forget(Node node) {
+            if (node == null)
+                return;
+            chars -= node.resource.length();
+            size.addAndGet(-node.size);
+        }
+
+        // a content larger than the maximum is not kept ; otherwise evict least recently used first
+        private void evict(String location, Node changed) {
+            if (changed.size > maxSize) {
+                this.forget(map.remove(location));
+                evictions++;
+                return;
+            }
+            Iterator<Map.Entry<String, Node>> eldest = map.entrySet().iterator();
+            while (size.get() > maxSize && eldest.hasNext()) {
+                Node evicted = eldest.next().getValue();
+                if (evicted == changed)
+                    continue;
+                eldest.remove();
+                this.forget(evicted);
+                evictions++;
+            }
+        }
+    }
+
+    private final long maxSize;
+    private final AtomicLong size = new AtomicLong();
+    private final long timeToLiveMillis;
+    private final Segment[] segments;
+    private final int mask;
+
+    /**
+     * @param maxSize , the maximum sum of characters and UTF-8 bytes of all contents
+     */
+    public LruStringResourceCache(long maxSize) {
+        this(maxSize, NO_EXPIRATION);
+    }
+    /**
+     * @param maxSize , the maximum sum of characters and UTF-8 bytes of all contents
+     * @param timeToLiveMillis , the maximum age of a content or NO_EXPIRATION
+     */
+    public LruStringResourceCache(long maxSize, long timeToLiveMillis) {
+        if (maxSize <= 0)
+            throw new IllegalArgumentException("maxSize <= 0");
+        this.maxSize = maxSize;
+        this.timeToLiveMillis = timeToLiveMillis;
+        int count = 1;
+        while (count * 2 <= CONCURRENCY_LEVEL && maxSize / (count * 2) >= MIN_SEGMENT_SIZE)
+            count *= 2;
+        this.segments = new Segment[count];
+        for (int s = 0; s < count; s++)
+            segments[s] = new Segment();
+        this.mask = count - 1;
+    }
+
+    private Segment segmentFor(String location) {
+        int h = location.hashCode();
+        // spread the high bits over the few low bits that select the segment
+        h ^= (h >>> 16) ^ (h >>> 8);
+        return segments[h & mask];
+    }
+
+    private boolean isExpired(CachedResource resource) {
+        return timeToLiveMillis > 0 && System.currentTimeMillis() - resource.getCreatedMillis() > timeToLiveMillis;
+    }
+
+    public CachedResource get(String location) {
+        return this.segmentFor(location).get(location);
+    }
+
+    public CachedResource put(String location, String content) {
+        final Segment segment = this.segmentFor(location);
+        final CachedResource resource = segment.put(location, content);
+        this.evictOutside(segment);
+        return resource;
+    }
+
+    public CachedResource replace(String location, String content) {
+        final Segment segment = this.segmentFor(location);
+        final CachedResource resource = segment.replace(location, content);
+        this.evictOutside(segment);
+        return resource;
+    }
+
+    private void encoded(Segment segment, String location, CachedResource resource, int byteCount) {
+        segment.encoded(location, resource, byteCount);
+        this.evictOutside(segment);
+    }
+
+    /**
+     * Evict from the other segments while the cache is too large ; the segment that grew is already evicted.
+     * Segments are locked one at a time.
+     */
+    private void evictOutside(Segment grown) {
+        int s = 0;
+        while (size.get() > maxSize && s < segments.length) {
+            final Segment each = segments[s];
+            if (each == grown || !each.evictEldest())
+                s++;
+        }
+    }
+
+    public void remove(String location) {
+        this.segmentFor(location).remove(location);
+    }
+
+    public void clear() {
+        for (Segment each : segments)
+            each.clear();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment each : segments) {
+            synchronized (each) {
+                size += each.map.size();
+            }
+        }
+        return size;
+    }
+
+    public long totalChars() {
+        long chars = 0;
+        for (Segment each : segments) {
+            synchronized (each) {
+                chars += each.chars;
+            }
+        }
+        return chars;
+    }
+
+    /**
+     * @return the sum of characters and UTF-8 bytes of all contents ; at most the maximum size
+     */
+    public long totalSize() {
+        return size.get();
+    }
+
+    public long hitCount() {
+        long hits = 0;
+        for (Segment each : segments) {
+            synchronized (each) {
+                hits += each.hits;
+            }
+        }
+        return hits;
+    }
+
+    public long missCount() {
+        long misses = 0;
+        for (Segment each : segments) {
+            synchronized (each) {
+                misses += each.misses;
+            }
+        }
+        return misses;
+    }
+
+    public long evictionCount() {
+        long evictions = 0;
+        for (Segment each : segments) {
+            synchronized (each) {
+                evictions += each.evictions;
+            }
+        }
+        return evictions;
+    }
+
+    /**
+     * @return the maximum sum of characters and UTF-8 bytes of all contents
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return the number of independently locked segments
+     */
+    public int getSegmentCount() {
+        return segments.length;
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + "{size=" + this.size() + ",chars=" + this.totalChars()
+            + ",total=" + this.totalSize() + "/" + maxSize + ",hits=" + this.hitCount() + ",misses=" + this.missCount()
+            + ",evictions=" + this.evictionCount() + "}";
+    }
+}
@@ -0,0 +1,285 @@
+package org.rendersnake.internal;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.rendersnake.ContextKey;
+import org.rendersnake.HtmlCanvas;
+import org.rendersnake.Renderable;
+
+/**
+ * RecordingCanvas renders a component once and splits its output into constant
+ * character segments and dynamic holes.
+ * <p>
+ * A nested component becomes a hole if it reads from the PageContext, asks for a nextId()
+ * or writes to the PageContext while one of its own nested components is a hole.
+ * All other output is constant and is kept as pre-joined characters.
+ * </p>
+ * <p>
+ * The complete output of the recording, holes included, is kept such that the first render
+ * does not need to render the holes again.
+ * </p>
+ *
+ * @author emicklei
+ */
+public class RecordingCanvas extends HtmlCanvas {
+    /**
+     * All characters written so far ; holes are ranges in this buffer.
+     */
+    private final StringBuffer buffer;
+    private final List<Integer> holeStarts = new ArrayList<Integer>();
+    private final List<Integer> holeEnds = new ArrayList<Integer>();
+    private final List<Renderable> holes = new ArrayList<Renderable>();
+    private final HtmlCanvas parent;
+    private final TrackingStackedMap tracking;
+    /**
+     * Whether a component rendered at the current nesting level has become a hole.
+     */
+    private boolean holeBelow = false;
+    /**
+     * Set if a hole was not balanced with respect to open tags.
+     */
+    private boolean unbalanced = false;
+
+    /**
+     * Create a RecordingCanvas whose PageContext is a fork of that of the parent.
+     * Identifiers are generated by the parent.
+     * @param parent
+     */
+    public RecordingCanvas(HtmlCanvas parent) {
+        super(new StringWriter(1024));
+        this.buffer = ((StringWriter) out).getBuffer();
+        this.parent = parent;
+        // a fork takes the stored values as is ; lazy values are only computed when read
+        this.tracking = parent.hasPageContext()
+                ? new TrackingStackedMap(parent.getPageContext().attributes)
+                : new TrackingStackedMap();
+        this.getPageContext().attributes = tracking;
+    }
+
+    /**
+     * Render the top-level component and answer the recorded segments.
+     * Each element is either a char[] (constant output) or a Renderable (hole).
+     * Answer null if the component itself depends on the context or leaves tags open.
+     *
+     * @param component
+     * @return Object[] | null
+     * @throws IOException
+     */
+    public Object[] record(Renderable component) throws IOException {
+        component.renderOn(this);
+        if (unbalanced || !openTagStack.isEmpty())
+            return null;
+        if (tracking.reads > 0 || (tracking.writes > 0 && holeBelow))
+            return null;
+        return this.segments();
+    }
+
+    /**
+     * @return all characters written by the recorded component, including those of its holes
+     */
+    public char[] getOutput() {
+        return this.charsBetween(0, buffer.length());
+    }
+
+    /**
+     * @return the close tags of the elements left open by the recorded component
+     */
+    public TagStack getOpenTags() {
+        return openTagStack;
+    }
+
+    private Object[] segments() {
+        List<Object> segments = new ArrayList<Object>(holes.size() * 2 + 1);
+        int begin = 0;
+        for (int h = 0; h < holes.size(); h++) {
+            int end = holeStarts.get(h);
+            if (end > begin)
+                segments.add(this.charsBetween(begin, end));
+            segments.add(holes.get(h));
+            begin = holeEnds.get(h);
+        }
+        if (buffer.length() > begin)
+            segments.add(this.charsBetween(begin, buffer.length()));
+        return segments.toArray();
+    }
+
+    private char[] charsBetween(int begin, int end) {
+        char[] chars = new char[end - begin];
+        buffer.getChars(begin, end, chars, 0);
+        return chars;
+    }
+
+    @Override
+    public HtmlCanvas render(Renderable component) throws IOException {
+        if (component == null) return this;
+
+        final int readsBefore = tracking.reads;
+        final int writesBefore = tracking.writes;
+        final boolean holeBelowBefore = holeBelow;
+        // the '>' of a pending open tag is constant ; it must not become part of the hole
+        this.finishOpenTag();
+        final int mark = buffer.length();
+        final int holesBefore = holes.size();
+        final int depth = openTagStack.size();
+        tracking.reads = 0;
+        tracking.writes = 0;
+        holeBelow = false;
+
+        super.render(component);
+
+        final boolean isHole = tracking.reads > 0 || (tracking.writes > 0 && holeBelow);
+        if (isHole) {
+            if (openTagStack.size() != depth)
+                unbalanced = true;
+            // what the component has written is not constant ; it is rendered at replay
+            while (holes.size() > holesBefore) {
+                holes.remove(holes.size() - 1);
+                holeStarts.remove(holeStarts.size() - 1);
+                holeEnds.remove(holeEnds.size() - 1);
+            }
+            holes.add(component);
+            holeStarts.add(mark);
+            holeEnds.add(buffer.length());
+        }
+        tracking.reads = readsBefore;
+        tracking.writes = writesBefore;
+        holeBelow = holeBelowBefore || holeBelow || isHole;
+        return this;
+    }
+
+    /**
+     * Generated identifiers must be unique per page ; using one makes the component dynamic.
+     * The identifier is taken from the parent because the recorded output is also written to the page.
+     */
+    @Override
+    public String nextId() {
+        tracking.reads++;
+        return parent.nextId();
+    }
+
+    /**
+     * StackedMap that counts the read and write operations.
+     */
+    static class TrackingStackedMap extends StackedMap {
+        int reads = 0;
+        int writes = 0;
+
+        TrackingStackedMap() {
+            super();
+        }
+        TrackingStackedMap(StackedMap parent) {
+            super(parent);
+        }
+        @Override
+        public Object get(Object key) {
+            reads++;
+            return super.get(key);
+        }
+        @Override
+        public boolean containsKey(Object key) {
+            reads++;
+            return super.containsKey(key);
+        }
+        @Override
+        public boolean containsValue(Object value) {
+            reads++;
+            return super.containsValue(value);
+        }
+        @Override
+        public Set<String> keySet() {
+            reads++;
+            return super.keySet();
+        }
+        @Override
+        public Set<Map.Entry<String, Object>> entrySet() {
+            reads++;
+            return super.entrySet();
+        }
+        @Override
+        public boolean isEmpty() {
+            reads++;
+            return super.isEmpty();
+        }
+        @Override
+        public int size() {
+            reads++;
+            return super.size();
+        }
+        @Override
+        public <T> T get(ContextKey<T> key) {
+            reads++;
+            return super.get(key);
+        }
+        @Override
+        public <T> Object put(ContextKey<T> key, T value) {
+            writes++;
+            return super.put(key, value);
+        }
+        @Override
+        public int getInt(String key, int defaultValue) {
+            reads++;
+            return super.getInt(key, defaultValue);
+        }
+        @Override
+        public long getLongValue(String key, long defaultValue) {
+            reads++;
+            return super.getLongValue(key, defaultValue);
+        }
+        @Override
+        public float getFloatValue(String key, float defaultValue) {
+            reads++;
+            return super.getFloatValue(key, defaultValue);
+        }
+        @Override
+        public boolean getBooleanValue(String key, boolean defaultValue) {
+            reads++;
+            return super.getBooleanValue(key, defaultValue);
+        }
+        @Override
+        public void putInt(String key, int value) {
+            writes++;
+            super.putInt(key, value);
+        }
+        @Override
+        public void putLong(String key, long value) {
+            writes++;
+            super.putLong(key, value);
+        }
+        @Override
+        public void putFloat(String key, float value) {
+            writes++;
+            super.putFloat(key, value);
+        }
+        @Override
+        public void putBoolean(String key, boolean value) {
+            writes++;
+            super.putBoolean(key, value);
+        }
+        @Override
+        public StackedMap fork() {
+            // the fork can read all values
+            reads++;
+            return super.fork();
+        }
+        @Override
+        public Object put(String key, Object value) {
+            writes++;
+            return super.put(key, value);
+        }
+        @Override
+        public void putAll(Map<? extends String, ? extends Object> m) {
+            writes++;
+            super.putAll(m);
+        }
+        @Override
+        public Object remove(Object key) {
+            writes++;
+            return super.remove(key);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.rendersnake.internal;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * RenderExecutors creates the executors used for rendering on other threads.
+ *
+ * @author emicklei
+ */
+public final class RenderExecutors {
+
+    private RenderExecutors() {}
+
+    /**
+     * Answer an executor that starts a virtual thread per task if the JVM has them (Java 21+).
+     * Otherwise answer a cached pool of daemon threads.
+     *
+     * @param prefix , the start of each thread name of the pool
+     * @return a new ExecutorService
+     */
+    public static ExecutorService newDefaultExecutor(String prefix) {
+        ExecutorService virtual = newVirtualThreadExecutorOrNull();
+        if (virtual != null)
+            return virtual;
+        return Executors.newCachedThreadPool(new DaemonThreadFactory(prefix));
+    }
+
+    /**
+     * Answer Executors.newVirtualThreadPerTaskExecutor() ; null if not available.
+     * Looked up reflectively because rendersnake is compiled for older Java versions.
+     */
+    public static ExecutorService newVirtualThreadExecutorOrNull() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.rendersnake.internal;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.Charset;
+
+/**
+ * ResourceReader reads the complete content of a resource and decodes it once using a given charset.
+ * Files and other resources are bulk-read into a buffer sized by their length.
+ * Line terminators are kept as is.
+ *
+ * @author emicklei
+ */
+public class ResourceReader {
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private ResourceReader() {
+    }
+
+    /**
+     * Read the content of a resource.
+     * @param url , e.g. as answered by ClassLoader.getResource(...)
+     * @param charset , the encoding of the resource
+     * @return String
+     * @throws IOException
+     */
+    public static String read(URL url, Charset charset) throws IOException {
+        File file = fileOrNull(url);
+        if (file != null && file.isFile())
+            return read(file, charset);
+        URLConnection connection = url.openConnection();
+        InputStream in = connection.getInputStream();
+        try {
+            return read(in, connection.getContentLength(), charset);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Read the content of a file into a buffer of its size.
+     * The file is not memory-mapped ; a mapping would keep it locked on Windows until garbage collected.
+     * @param file
+     * @param charset
+     * @return String
+     * @throws IOException
+     */
+    public static String read(File file, Charset charset) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            long size = in.getChannel().size();
+            return read(in, size < Integer.MAX_VALUE ? (int) size : -1, charset);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Read all bytes of a stream and decode them once. The stream is not closed.
+     * @param in
+     * @param sizeHint , the expected number of bytes or a negative value if unknown
+     * @param charset
+     * @return String
+     * @throws IOException
+     */
+    public static String read(InputStream in, int sizeHint, Charset charset) throws IOException {
+        byte[] bytes = new byte[sizeHint > 0 ? sizeHint + 1 : DEFAULT_BUFFER_SIZE];
+        int count = 0;
+        int read;
+        while ((read = in.read(bytes, count, bytes.length - count)) != -1) {
+            count += read;
+            if (count == bytes.length) {
+                byte[] grown = new byte[bytes.length * 2];
+                System.arraycopy(bytes, 0, grown, 0, count);
+                bytes = grown;
+            }
+        }
+        return new String(bytes, 0, count, charset);
+    }
+
+    /**
+     * Answer the file of a file: URL.
+     * @param url
+     * @return File | null if not a file: URL
+     */
+    public static File fileOrNull(URL url) {
+        if (!"file".equals(url.getProtocol()))
+            return null;
+        try {
+            return new File(url.toURI());
+        } catch (URISyntaxException ex) {
+            return null;
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+}
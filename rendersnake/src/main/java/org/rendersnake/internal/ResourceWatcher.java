@@ -0,0 +1,184 @@
+package org.rendersnake.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * ResourceWatcher watches the directories of files that back cached resources.
+ * A background daemon thread tells the Reloader about each changed or deleted file,
+ * such that only those resources are read again.
+ *
+ * @author emicklei
+ */
+public class ResourceWatcher implements Runnable {
+    /**
+     * Time to wait for more events after a change ; editors often write a file in several steps.
+     */
+    public static long SETTLE_MILLIS = 50;
+
+    /**
+     * Reloader is called from the watching thread.
+     */
+    public interface Reloader {
+        /**
+         * The file backing the resource at the location was created or modified.
+         */
+        void reload(String location, File file);
+        /**
+         * The file backing the resource at the location was deleted.
+         */
+        void remove(String location);
+    }
+
+    private final WatchService service;
+    private final Reloader reloader;
+    private final ConcurrentMap<Path, WatchKey> directories = new ConcurrentHashMap<Path, WatchKey>();
+    private final ConcurrentMap<Path, Set<String>> locationsByFile = new ConcurrentHashMap<Path, Set<String>>();
+    private final Thread thread;
+
+    /**
+     * Create and start a ResourceWatcher.
+     * @param reloader
+     * @throws IOException if the file system cannot be watched
+     */
+    public ResourceWatcher(Reloader reloader) throws IOException {
+        this.reloader = reloader;
+        this.service = FileSystems.getDefault().newWatchService();
+        this.thread = new DaemonThreadFactory("ResourceWatcher").newThread(this);
+        this.thread.start();
+    }
+
+    /**
+     * Watch the file that backs the resource at a location.
+     * @param location
+     * @param file
+     * @throws IOException
+     */
+    public void watch(String location, File file) throws IOException {
+        Path path = file.getAbsoluteFile().toPath();
+        Set<String> locations;
+        do {
+            locations = locationsByFile.get(path);
+            if (locations == null) {
+                Set<String> created = new CopyOnWriteArraySet<String>();
+                locations = locationsByFile.putIfAbsent(path, created);
+                if (locations == null)
+                    locations = created;
+            }
+            locations.add(location);
+            // retry if unwatch dropped the set concurrently
+        } while (locationsByFile.get(path) != locations);
+        Path directory = path.getParent();
+        if (!directories.containsKey(directory)) {
+            WatchKey key = directory.register(service,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+            directories.putIfAbsent(directory, key);
+        }
+    }
+
+    /**
+     * Stop watching the file of a location, e.g. because it is no longer cached.
+     * @param location
+     */
+    public void unwatch(String location) {
+        for (Map.Entry<Path, Set<String>> each : locationsByFile.entrySet()) {
+            Set<String> locations = each.getValue();
+            if (locations.remove(location) && locations.isEmpty())
+                locationsByFile.remove(each.getKey(), locations);
+        }
+    }
+
+    /**
+     * Stop watching the files of all locations.
+     */
+    public void unwatchAll() {
+        locationsByFile.clear();
+    }
+
+    /**
+     * @return the number of watched files
+     */
+    public int size() {
+        return locationsByFile.size();
+    }
+
+    /**
+     * Stop watching. The background thread ends.
+     */
+    public void close() {
+        try {
+            service.close();
+        } catch (IOException ex) {
+            Logger.getAnonymousLogger().log(Level.WARNING, "Unable to close watch service", ex);
+        }
+    }
+
+    public void run() {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                Thread.sleep(SETTLE_MILLIS);
+                // collect all pending events such that each file is read once
+                Set<Path> changed = new HashSet<Path>();
+                boolean overflow = false;
+                do {
+                    Path directory = (Path) key.watchable();
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            overflow = true;
+                        } else {
+                            changed.add(directory.resolve((Path) event.context()));
+                        }
+                    }
+                    if (!key.reset())
+                        directories.remove(directory);
+                    key = service.poll();
+                } while (key != null);
+                if (overflow)
+                    changed.addAll(locationsByFile.keySet());
+                for (Path each : changed) {
+                    this.changed(each);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException ex) {
+            // closed ; stop watching
+        }
+    }
+
+    private void changed(Path path) {
+        Set<String> locations = locationsByFile.get(path);
+        if (locations == null)
+            return;
+        File file = path.toFile();
+        for (String each : locations) {
+            try {
+                if (file.isFile()) {
+                    reloader.reload(each, file);
+                } else {
+                    reloader.remove(each);
+                }
+            } catch (RuntimeException ex) {
+                Logger.getAnonymousLogger().log(Level.WARNING, "Unable to reload:" + each, ex);
+            }
+        }
+    }
+}
@@ -6,6 +6,8 @@ import java.util.Map;
 
 
 /**
+ * Primitive values are kept in a mutable holder per key that is reused when the key is set again.
+ *
  * @author emicklei
  *
  */
@@ -13,6 +15,33 @@ public class SimpleContextMap implements Serializable, ContextMap {
     private static final long serialVersionUID = -6319488346145394221L;
     private Map<String, Serializable> attributes = new HashMap<String, Serializable>();
 
+    /**
+     * Holder of a primitive value.
+     */
+    static final class Primitive implements Serializable {
+        private static final long serialVersionUID = 3206581419187032155L;
+        static final char INT = 'I', LONG = 'J', FLOAT = 'F', BOOLEAN = 'Z';
+        char type;
+        long bits;
+
+        Primitive(char type, long bits) {
+            this.type = type;
+            this.bits = bits;
+        }
+        Object box() {
+            switch (type) {
+            case INT: return Integer.valueOf((int) bits);
+            case LONG: return Long.valueOf(bits);
+            case FLOAT: return Float.valueOf(Float.intBitsToFloat((int) bits));
+            default: return Boolean.valueOf(bits != 0);
+            }
+        }
+        @Override
+        public String toString() {
+            return String.valueOf(this.box());
+        }
+    }
+
     /**
      * 
      */
@@ -25,8 +54,36 @@ public class SimpleContextMap implements Serializable, ContextMap {
     public SimpleContextMap(Map<?,?> attributesMap) {
         this.attributes = (Map<String, Serializable>)attributesMap;
     }    
-    public Object getObject(String key, Object... optional) {
+    /**
+     * Answer the stored value ; box it if it is a primitive.
+     */
+    private Object valueOf(String key) {
         Object value = attributes.get(key);
+        return value instanceof Primitive ? ((Primitive) value).box() : value;
+    }
+    private void putBits(String key, char type, long bits) {
+        Object existing = attributes.get(key);
+        if (existing instanceof Primitive) {
+            ((Primitive) existing).type = type;
+            ((Primitive) existing).bits = bits;
+        } else {
+            attributes.put(key, new Primitive(type, bits));
+        }
+    }
+    /**
+     * Answer the holder if the key stores a primitive of a type ; null otherwise.
+     */
+    private Primitive primitiveOf(String key, char type) {
+        Object value = attributes.get(key);
+        if (value instanceof Primitive && ((Primitive) value).type == type)
+            return (Primitive) value;
+        return null;
+    }
+    private static boolean isText(Object value) {
+        return value instanceof String && !((String) value).isEmpty();
+    }
+    public Object getObject(String key, Object... optional) {
+        Object value = this.valueOf(key);
         if (value == null) {
             return optional.length == 0 ? null : optional[0];
         } else {
@@ -34,7 +91,7 @@ public class SimpleContextMap implements Serializable, ContextMap {
         }
     }
     public Boolean getBoolean(String key, Boolean... optional) {
-        Object value = attributes.get(key);
+        Object value = this.valueOf(key);
         if (value == null) {
             return optional.length == 0 ? null : optional[0];
         } else {
@@ -46,7 +103,7 @@ public class SimpleContextMap implements Serializable, ContextMap {
         }
     }
     public Float getFloat(String key, Float... optional) {
-        Object value = attributes.get(key);
+        Object value = this.valueOf(key);
         if (value == null) {
             return optional.length == 0 ? null : optional[0];
         } else {
@@ -58,7 +115,7 @@ public class SimpleContextMap implements Serializable, ContextMap {
         }
     }
     public Integer getInteger(String key, Integer... optional) {
-        Object value = attributes.get(key);
+        Object value = this.valueOf(key);
         if (value == null) {
             return optional.length == 0 ? null : optional[0];
         } else {
@@ -70,7 +127,7 @@ public class SimpleContextMap implements Serializable, ContextMap {
         }
     }
     public Long getLong(String key, Long... optional) {
-        Object value = attributes.get(key);
+        Object value = this.valueOf(key);
         if (value == null) {
             return optional.length == 0 ? null : optional[0];
         } else {
@@ -82,7 +139,7 @@ public class SimpleContextMap implements Serializable, ContextMap {
         }
     }
     public String getString(String key, String... optional) {
-        Object value = attributes.get(key);
+        Object value = this.valueOf(key);
         if (value == null) {
             return optional.length == 0 ? null : optional[0];
         } else {
@@ -113,13 +170,74 @@ public class SimpleContextMap implements Serializable, ContextMap {
         attributes.put(key, (Serializable) value);
         return this;
     }
+    public SimpleContextMap withInteger(String key, int value) {
+        this.putBits(key, Primitive.INT, value);
+        return this;
+    }
+    public SimpleContextMap withLong(String key, long value) {
+        this.putBits(key, Primitive.LONG, value);
+        return this;
+    }
+    public SimpleContextMap withFloat(String key, float value) {
+        this.putBits(key, Primitive.FLOAT, Float.floatToRawIntBits(value));
+        return this;
+    }
+    public SimpleContextMap withBoolean(String key, boolean value) {
+        this.putBits(key, Primitive.BOOLEAN, value ? 1L : 0L);
+        return this;
+    }
+    public int getInt(String key, int defaultValue) {
+        Primitive primitive = this.primitiveOf(key, Primitive.INT);
+        if (primitive != null)
+            return (int) primitive.bits;
+        Object value = attributes.get(key);
+        if (value instanceof Integer)
+            return ((Integer) value).intValue();
+        if (isText(value))
+            return Integer.parseInt((String) value);
+        return defaultValue;
+    }
+    public long getLongValue(String key, long defaultValue) {
+        Primitive primitive = this.primitiveOf(key, Primitive.LONG);
+        if (primitive != null)
+            return primitive.bits;
+        Object value = attributes.get(key);
+        if (value instanceof Long)
+            return ((Long) value).longValue();
+        if (isText(value))
+            return Long.parseLong((String) value);
+        return defaultValue;
+    }
+    public float getFloatValue(String key, float defaultValue) {
+        Primitive primitive = this.primitiveOf(key, Primitive.FLOAT);
+        if (primitive != null)
+            return Float.intBitsToFloat((int) primitive.bits);
+        Object value = attributes.get(key);
+        if (value instanceof Float)
+            return ((Float) value).floatValue();
+        if (isText(value))
+            return Float.parseFloat((String) value);
+        return defaultValue;
+    }
+    public boolean getBooleanValue(String key, boolean defaultValue) {
+        Primitive primitive = this.primitiveOf(key, Primitive.BOOLEAN);
+        if (primitive != null)
+            return primitive.bits != 0;
+        Object value = attributes.get(key);
+        if (value instanceof Boolean)
+            return ((Boolean) value).booleanValue();
+        if (isText(value))
+            return Boolean.parseBoolean((String) value);
+        return defaultValue;
+    }
     public Object clear(String key) {
-        return attributes.remove(key);
+        Object value = attributes.remove(key);
+        return value instanceof Primitive ? ((Primitive) value).box() : value;
     }  
     public Map<Object,Object> toMap() {
         HashMap<Object,Object> map = new HashMap<Object,Object>();
         for (Map.Entry<String, Serializable> each : this.attributes.entrySet()) {
-            map.put(each.getKey(), each.getValue());
+            map.put(each.getKey(), each.getValue() instanceof Primitive ? ((Primitive) each.getValue()).box() : each.getValue());
         }
         return map;
     }
@@ -1,38 +1,158 @@
 package org.rendersnake.internal;
 
-import java.util.ArrayDeque;
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Deque;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
+import org.rendersnake.ContextKey;
+import org.rendersnake.LazyValue;
+
 /**
  * A nested hash-based <code>Map</code> implementation.
  * If an entry is not found in the map at nesting level <em>N</em>
  * then retry in map <em>N</em>-1, if N &gt;= 0;
  * return <code>null</code> otherwise.
+ * <p>
+ * All levels share one flat log of (key, value, depth) entries. An open-addressing index maps
+ * each key to its most recent entry ; that entry links to the entry it shadows.
+ * A push only records the current length of the log and a pop truncates it,
+ * so nesting allocates nothing and a lookup is a single probe.
+ * </p>
+ * <p>
+ * Levels are pushed lazily: a push only counts a pending level and that level is materialized
+ * by the first put inside it. Pushing and popping levels that stay empty never touches the log.
+ * </p>
+ * <p>
+ * A {@link ContextKey} remembers the slot of its name per map so typed access does not hash the name.
+ * The value converted for a typed read is kept next to the stored value.
+ * </p>
+ * <p>
+ * Primitive int, long, float and boolean values are stored as bits next to the entry and are only
+ * boxed when read through the <code>Map</code> API.
+ * </p>
+ * <p>
+ * A stored {@link LazyValue} is answered by its computed value by every read.
+ * </p>
+ * <p>
+ * A {@link #fork()} shares all arrays with the receiver ; whichever map changes first copies them.
+ * A map whose arrays are shared never writes into them so a fork can be read on another thread without locking.
+ * </p>
  *
  * @author ernestmicklei
  */
 public class StackedMap implements Map<String, Object> {
 
     /**
-     * 
+     * Initial number of entries of all levels together.
+     */
+    public static int INITIAL_MAP_CAPACITY = 16;
+    /**
+     * Number of distinct keys above which {@link #reset()} drops the index instead of clearing it.
+     * Keys stay in the index until reset so a map that is reused for many pages with generated keys would keep growing.
+     */
+    public static int MAX_RETAINED_SLOTS = 256;
+    /**
+     * Marks an entry that was removed ; it stays in the log until its level is popped.
+     */
+    private static final Object REMOVED = new Object();
+    /**
+     * Marks an entry whose value is stored in bits.
+     */
+    private static final class Bits {
+        final String type;
+        Bits(String type) { this.type = type; }
+        @Override
+        public String toString() { return type; }
+    }
+    private static final Bits INT_BITS = new Bits("int");
+    private static final Bits LONG_BITS = new Bits("long");
+    private static final Bits FLOAT_BITS = new Bits("float");
+    private static final Bits BOOLEAN_BITS = new Bits("boolean");
+
+    // the log of entries, in order of creation
+    private String[] keys;
+    private Object[] values;
+    private int[] depths;
+    /**
+     * Index of the entry with the same key at a lower depth ; -1 if none.
+     */
+    private int[] shadows;
+    /**
+     * Index of the slot of the key of each entry.
+     */
+    private int[] entrySlots;
+    /**
+     * Value of each entry as converted by the last typed read ; null if none.
+     */
+    private Object[] converted;
+    /**
+     * Primitive value of each entry marked by Bits.
+     */
+    private long[] bits;
+    private int count = 0;
+    /**
+     * Number of entries that are not REMOVED.
+     */
+    private int live = 0;
+
+    // open-addressing index from key to most recent entry ; keys are never removed from it
+    private String[] slotKeys;
+    private int[] slotHeads;
+    private int slotCount = 0;
+    /**
+     * Slot + 1 of the name of each ContextKey by its index ; 0 if not resolved yet.
      */
-    public static int INITIAL_MAP_CAPACITY = 7;
-    private Deque<Map<String,Object>> stack;
+    private int[] keySlots = new int[0];
+
+    /**
+     * Length of the log at the time each depth was pushed.
+     */
+    private int[] marks;
+    private int depth;
+    /**
+     * Number of levels pushed on top of depth that have no entries yet.
+     */
+    private int pending = 0;
+    /**
+     * Set if the arrays may be referenced by a fork (or by the map it was forked from).
+     */
+    private boolean shared = false;
 
     /**
      * Constructs an empty <code>StackedMap</code>.
      */
     public StackedMap() {
         this.init();
-    } 
+    }
+    /**
+     * Constructs a fork that shares the arrays of the parent ; see {@link #fork()}.
+     * Values are taken as stored, lazy values are not computed.
+     */
+    protected StackedMap(StackedMap parent) {
+        parent.shared = true;
+        this.keys = parent.keys;
+        this.values = parent.values;
+        this.depths = parent.depths;
+        this.shadows = parent.shadows;
+        this.entrySlots = parent.entrySlots;
+        this.converted = parent.converted;
+        this.bits = parent.bits;
+        this.count = parent.count;
+        this.live = parent.live;
+        this.slotKeys = parent.slotKeys;
+        this.slotHeads = parent.slotHeads;
+        this.slotCount = parent.slotCount;
+        this.marks = parent.marks;
+        this.depth = parent.depth;
+        this.pending = parent.pending;
+        this.shared = true;
+    }
     /**
      * Constructs a new <code>StackedMap</code> with the same mappings as
      * the specified <code>Map</code>. The mappings will be created at depth
@@ -48,15 +168,79 @@ public class StackedMap implements Map<String, Object> {
     public StackedMap(Map<? extends String, ? extends Object> m) {
         this();
         this.putAll(m);
-    }    
+    }
     /**
      * Initialize the receiver with an empty map.
      */
-    @SuppressWarnings("unchecked")
     private void init() {
-        this.stack = new ArrayDeque<Map<String,Object>>();
-        this.push();
-    }    
+        final int capacity = Math.max(INITIAL_MAP_CAPACITY, 4);
+        this.keys = new String[capacity];
+        this.values = new Object[capacity];
+        this.depths = new int[capacity];
+        this.shadows = new int[capacity];
+        this.entrySlots = new int[capacity];
+        this.converted = new Object[capacity];
+        this.bits = new long[capacity];
+        this.slotKeys = new String[capacity * 2];
+        this.slotHeads = new int[capacity * 2];
+        this.marks = new int[16];
+        this.depth = 1;
+    }
+    /**
+     * Answer a map with the same mappings and levels in constant time.
+     * Changes to either map are not visible in the other.
+     * The fork may be used by another thread if the receiver is not changed concurrently with this call.
+     *
+     * @return a new StackedMap
+     */
+    public StackedMap fork() {
+        return new StackedMap(this);
+    }
+    /**
+     * Compute all stored {@link LazyValue}s, including those shadowed at a higher level.
+     * Forks share the computed values so these are not computed by the thread that uses a fork.
+     */
+    public void computeLazyValues() {
+        for (int i = 0; i < count; i++) {
+            if (values[i] instanceof LazyValue)
+                ((LazyValue<?>) values[i]).get();
+        }
+    }
+    /**
+     * Remove all mappings and all levels ; keep the capacity for reuse.
+     */
+    public void reset() {
+        if (shared || slotCount > MAX_RETAINED_SLOTS || keys.length > MAX_RETAINED_SLOTS) {
+            // leave the arrays to the fork or drop the grown capacity
+            this.init();
+            this.count = 0;
+            this.live = 0;
+            this.slotCount = 0;
+            this.shared = false;
+        } else {
+            this.clear();
+        }
+        if (keySlots.length > MAX_RETAINED_SLOTS || slotCount == 0)
+            this.keySlots = new int[0];
+        this.depth = 1;
+        this.pending = 0;
+    }
+    /**
+     * Copy the arrays that are shared with a fork before changing them.
+     */
+    private void unshare() {
+        keys = keys.clone();
+        values = values.clone();
+        depths = depths.clone();
+        shadows = shadows.clone();
+        entrySlots = entrySlots.clone();
+        converted = converted.clone();
+        bits = bits.clone();
+        slotKeys = slotKeys.clone();
+        slotHeads = slotHeads.clone();
+        marks = marks.clone();
+        shared = false;
+    }
     /**
      * Increases the depth of the stack of maps. From now on all
      * {@link #put(String,Object)} operations will store the mappings at the
@@ -66,7 +250,24 @@ public class StackedMap implements Map<String, Object> {
      * depth unavailable.
      */
     public void push() {
-        stack.addFirst(new HashMap<String,Object>(INITIAL_MAP_CAPACITY));
+        pending++;
+    }
+    /**
+     * Record the marks of all pending levels ; these are empty so they all start at the end of the log.
+     */
+    private void materialize() {
+        if (shared)
+            this.unshare();
+        final int top = depth + pending;
+        if (top >= marks.length) {
+            int[] grown = new int[Math.max(marks.length * 2, top + 1)];
+            System.arraycopy(marks, 0, grown, 0, marks.length);
+            marks = grown;
+        }
+        while (depth < top) {
+            marks[++depth] = count;
+        }
+        pending = 0;
     }
     /**
      * Decreases the depth of the stack of maps, effectively removing all
@@ -80,10 +281,28 @@ public class StackedMap implements Map<String, Object> {
      *    if <code>getDepth() == 0</code>.
      */
     public void pop() {
-        if (stack.size() == 1)
+        if (pending > 0) {
+            // nothing was put at this level
+            pending--;
+            return;
+        }
+        if (depth == 1)
             throw new IllegalStateException("getDepth() == 0");
+        if (shared)
+            this.unshare();
 
-        stack.removeFirst();
+        final int mark = marks[depth--];
+        for (int i = count - 1; i >= mark; i--) {
+            if (values[i] != REMOVED) {
+                // unshadow
+                slotHeads[entrySlots[i]] = shadows[i];
+                live--;
+            }
+            keys[i] = null;
+            values[i] = null;
+            converted[i] = null;
+        }
+        count = mark;
     }
     /**
      * Returns the depth of the stack.
@@ -92,120 +311,450 @@ public class StackedMap implements Map<String, Object> {
      *    the depth of the stack, always &gt;= 0.
      */
     public int getDepth() {
-        return stack.size();
+        return depth + pending;
     }
+
     /**
-     * Retrieves the map at the top of the stack.
-     *
-     * @return
-     *    the {@link HashMap} at the top of the stack ; can be <code>null</code>
+     * Answer the index of the slot for the key ; the slot is empty if the key was never put.
+     */
+    private int slotOf(String key) {
+        final int mask = slotKeys.length - 1;
+        int h = key.hashCode();
+        int slot = (h ^ (h >>> 16)) & mask;
+        String here;
+        while ((here = slotKeys[slot]) != null) {
+            if (here == key || here.equals(key))
+                return slot;
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Answer the index of the most recent entry for the key ; -1 if absent.
+     */
+    private int headOf(String key) {
+        final int slot = this.slotOf(key);
+        return slotKeys[slot] == null ? -1 : slotHeads[slot];
+    }
+
+    /**
+     * Answer the index of the slot for the name of the key ; -1 if the name was never put.
+     */
+    private int slotOf(ContextKey<?> key) {
+        if (key == null)
+            throw new IllegalArgumentException("key == null");
+        final int index = key.getIndex();
+        final int[] resolved = keySlots;
+        if (index >= 0 && index < resolved.length && resolved[index] != 0)
+            return resolved[index] - 1;
+        final int slot = this.slotOf(key.getName());
+        if (slotKeys[slot] == null)
+            return -1;
+        this.resolve(index, slot);
+        return slot;
+    }
+
+    private void resolve(int index, int slot) {
+        if (index == ContextKey.NO_INDEX)
+            return;
+        if (index >= keySlots.length)
+            keySlots = Arrays.copyOf(keySlots, Math.max(index + 1, keySlots.length * 2));
+        keySlots[index] = slot + 1;
+    }
+
+    private int addSlot(String key) {
+        if (shared)
+            this.unshare();
+        if ((slotCount + 1) * 2 > slotKeys.length)
+            this.rehash();
+        int slot = this.slotOf(key);
+        if (slotKeys[slot] == null) {
+            slotKeys[slot] = key;
+            slotHeads[slot] = -1;
+            slotCount++;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        final String[] oldKeys = slotKeys;
+        final int[] oldHeads = slotHeads;
+        slotKeys = new String[oldKeys.length * 2];
+        slotHeads = new int[oldKeys.length * 2];
+        final int[] moved = new int[oldKeys.length];
+        for (int s = 0; s < oldKeys.length; s++) {
+            if (oldKeys[s] != null) {
+                int slot = this.slotOf(oldKeys[s]);
+                slotKeys[slot] = oldKeys[s];
+                slotHeads[slot] = oldHeads[s];
+                moved[s] = slot;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            entrySlots[i] = moved[entrySlots[i]];
+        }
+        // resolved again on next use
+        Arrays.fill(keySlots, 0);
+    }
+
+    private void growEntries() {
+        final int capacity = keys.length * 2;
+        String[] newKeys = new String[capacity];
+        Object[] newValues = new Object[capacity];
+        int[] newDepths = new int[capacity];
+        int[] newShadows = new int[capacity];
+        int[] newSlots = new int[capacity];
+        Object[] newConverted = new Object[capacity];
+        long[] newBits = new long[capacity];
+        System.arraycopy(keys, 0, newKeys, 0, count);
+        System.arraycopy(values, 0, newValues, 0, count);
+        System.arraycopy(depths, 0, newDepths, 0, count);
+        System.arraycopy(shadows, 0, newShadows, 0, count);
+        System.arraycopy(entrySlots, 0, newSlots, 0, count);
+        System.arraycopy(converted, 0, newConverted, 0, count);
+        System.arraycopy(bits, 0, newBits, 0, count);
+        keys = newKeys;
+        values = newValues;
+        depths = newDepths;
+        shadows = newShadows;
+        entrySlots = newSlots;
+        converted = newConverted;
+        bits = newBits;
+    }
+
+    /**
+     * Answer the key of the validated argument.
      */
-    private Map<String, Object> top() {
-        return this.stack.peekFirst();
+    private static String keyOf(Object key) {
+        if (key == null)
+            throw new IllegalArgumentException("key == null");
+        if (!(key instanceof String))
+            throw new IllegalArgumentException("key must be a string");
+        return (String) key;
     }
-    
+
     //
     // Map API
     //
     public void clear() {
-        for(Map<String,Object> each : stack) {
-            each.clear();
+        if (shared)
+            this.unshare();
+        for (int i = 0; i < count; i++) {
+            keys[i] = null;
+            values[i] = null;
+            converted[i] = null;
         }
+        for (int s = 0; s < slotKeys.length; s++) {
+            slotHeads[s] = -1;
+        }
+        for (int d = 0; d <= depth; d++) {
+            marks[d] = 0;
+        }
+        count = 0;
+        live = 0;
     }
 
     public boolean containsKey(Object key) {
-        for (Map<String,Object> here : stack) {
-            if (here.containsKey(key)) {
-                return true;
-            }
-        }
-        return false;
+        if (!(key instanceof String))
+            return false;
+        return this.headOf((String) key) != -1;
     }
 
     public boolean containsValue(Object value) {
-        for (Map<String,Object> here : stack) {
-            if (here.containsValue(value)) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == REMOVED)
+                continue;
+            final Object here = this.valueAt(i);
+            if (value == null ? here == null : value.equals(here)) {
                 return true;
             }
         }
         return false;
     }
 
+    /**
+     * Answer the entries of all levels, including those that are shadowed.
+     */
     public Set<java.util.Map.Entry<String, Object>> entrySet() {
         Set<java.util.Map.Entry<String, Object>> union = new HashSet<java.util.Map.Entry<String, Object>>();
-        for (Map<String,Object> here : stack) {
-            union.addAll(here.entrySet());
+        for (int i = 0; i < count; i++) {
+            if (values[i] != REMOVED) {
+                union.add(new AbstractMap.SimpleEntry<String, Object>(keys[i], this.valueAt(i)));
+            }
         }
         return union;
     }
 
     public boolean isEmpty() {
-        for (Map<String,Object> here : stack) {
-            if (!here.isEmpty()) {
-                return false;
-            }
-        }
-        return true;
+        return live == 0;
     }
+
     public Set<String> keySet() {
         Set<String> union = new HashSet<String>();
-        for (Map<String,Object> here : stack) {
-            union.addAll(here.keySet());
+        for (int i = 0; i < count; i++) {
+            if (values[i] != REMOVED) {
+                union.add(keys[i]);
+            }
         }
         return union;
     }
 
     public Object get(Object key) {
-        if (key == null)
-           throw new IllegalArgumentException("key == null");
-
-        if (!String.class.isAssignableFrom(key.getClass()))
-            throw new IllegalArgumentException("key must be a string");
-
-        String sKey = (String) key;
-        for (Map<String,Object> here : stack) {
-            if (here != null && here.containsKey(sKey)) {
-                return here.get(sKey);
-            }
-        }
+        final int head = this.headOf(keyOf(key));
+        return head == -1 ? null : this.valueAt(head);
+    }
 
-        return null;
+    /**
+     * Answer the stored value of an entry ; box it if stored as bits, compute it if lazy.
+     */
+    private Object valueAt(int i) {
+        final Object value = values[i];
+        if (!(value instanceof Bits))
+            return value instanceof LazyValue ? ((LazyValue<?>) value).get() : value;
+        if (value == INT_BITS)
+            return Integer.valueOf((int) bits[i]);
+        if (value == LONG_BITS)
+            return Long.valueOf(bits[i]);
+        if (value == FLOAT_BITS)
+            return Float.valueOf(Float.intBitsToFloat((int) bits[i]));
+        return Boolean.valueOf(bits[i] != 0);
     }
 
     public Object put(String key, Object value) {
         if (key == null)
             throw new IllegalArgumentException("key == null");
-        
-        return this.top().put(key, value);
+        return this.putInSlot(this.addSlot(key), key, value, 0L, true);
+    }
+
+    /**
+     * Store the value (or the marker of its bits) at the current level.
+     * Answer the previous value at this level if asked for ; that may box it.
+     */
+    private Object putInSlot(int slot, String key, Object value, long valueBits, boolean answerPrevious) {
+        if (shared)
+            this.unshare();
+        if (pending != 0)
+            this.materialize();
+
+        final int head = slotHeads[slot];
+        if (head != -1 && depths[head] == depth) {
+            // replace at this level
+            final Object previous = answerPrevious ? this.valueAt(head) : null;
+            values[head] = value;
+            bits[head] = valueBits;
+            converted[head] = null;
+            return previous;
+        }
+        if (count == keys.length)
+            this.growEntries();
+        keys[count] = key;
+        values[count] = value;
+        bits[count] = valueBits;
+        depths[count] = depth;
+        shadows[count] = head;
+        entrySlots[count] = slot;
+        converted[count] = null;
+        slotHeads[slot] = count;
+        count++;
+        live++;
+        return null;
     }
 
     public void putAll(Map<? extends String, ? extends Object> m) {
         if (m == null)
             throw new IllegalArgumentException("m == null");
-        this.top().putAll(m);
+        if (m instanceof StackedMap) {
+            // only the visible values
+            StackedMap other = (StackedMap) m;
+            for (String each : other.keySet()) {
+                this.put(each, other.get(each));
+            }
+            return;
+        }
+        for (Map.Entry<? extends String, ? extends Object> each : m.entrySet()) {
+            this.put(each.getKey(), each.getValue());
+        }
     }
 
     // note: returns the first non-null value removed
     public Object remove(Object key) {
+        if (!(key instanceof String))
+            return null;
+        final int slot = this.slotOf((String) key);
+        if (slotKeys[slot] == null)
+            return null;
+        if (shared)
+            this.unshare();
         Object objectToReturn = null;
-        for (Map<String,Object> here : stack) {
-            final Object value = here.remove(key);
+        for (int i = slotHeads[slot]; i != -1; i = shadows[i]) {
             if (objectToReturn == null)
-                objectToReturn = value; // may still be null
+                objectToReturn = this.valueAt(i); // may still be null
+            values[i] = REMOVED;
+            converted[i] = null;
+            live--;
         }
+        slotHeads[slot] = -1;
         return objectToReturn;
     }
 
-    public int size() {
-        int total = 0;
-        for (Map<String,Object> here : stack) {
-            total += here.size();
+    /**
+     * Answer the value of the key as its type ; convert the stored value if needed.
+     * @param key , not null
+     * @return T | null
+     * @throws IllegalArgumentException if key == null, as get(String) does
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(ContextKey<T> key) {
+        final int slot = this.slotOf(key);
+        if (slot == -1)
+            return null;
+        final int head = slotHeads[slot];
+        if (head == -1)
+            return null;
+        final Object value = this.valueAt(head);
+        if (value == null || key.isInstance(value))
+            return (T) value;
+        final Object previous = converted[head];
+        if (key.isInstance(previous))
+            return (T) previous;
+        final T result = key.cast(value);
+        if (!shared)
+            converted[head] = result;
+        return result;
+    }
+
+    /**
+     * Store the value by the name of the key at the current level.
+     * @param key , not null
+     * @param value
+     * @return the previous value at the current level | null
+     * @throws IllegalArgumentException if key == null, as put(String,Object) does
+     */
+    public <T> Object put(ContextKey<T> key, T value) {
+        int slot = this.slotOf(key);
+        if (slot == -1) {
+            slot = this.addSlot(key.getName());
+            this.resolve(key.getIndex(), slot);
         }
-        return total;
+        return this.putInSlot(slot, key.getName(), value, 0L, true);
+    }
+
+    //
+    // Primitive API
+    //
+    /**
+     * Store an int at the current level without boxing it.
+     * @param key , not null
+     * @param value
+     */
+    public void putInt(String key, int value) {
+        this.putBits(key, INT_BITS, value);
+    }
+    public void putLong(String key, long value) {
+        this.putBits(key, LONG_BITS, value);
+    }
+    public void putFloat(String key, float value) {
+        this.putBits(key, FLOAT_BITS, Float.floatToRawIntBits(value));
+    }
+    public void putBoolean(String key, boolean value) {
+        this.putBits(key, BOOLEAN_BITS, value ? 1L : 0L);
+    }
+
+    private void putBits(String key, Bits type, long valueBits) {
+        if (key == null)
+            throw new IllegalArgumentException("key == null");
+        this.putInSlot(this.addSlot(key), key, type, valueBits, false);
+    }
+
+    /**
+     * Answer the int stored for the key, either as int, Integer or non-empty String.
+     * @param key , not null
+     * @param defaultValue , if absent or of another type
+     * @return int
+     */
+    public int getInt(String key, int defaultValue) {
+        final int head = this.headOf(keyOf(key));
+        if (head == -1)
+            return defaultValue;
+        final Object value = this.objectAt(head);
+        if (value == INT_BITS)
+            return (int) bits[head];
+        if (value instanceof Integer)
+            return ((Integer) value).intValue();
+        if (isText(value))
+            return Integer.parseInt((String) value);
+        return defaultValue;
+    }
+    /**
+     * Answer the long stored for the key, either as long, Long or non-empty String.
+     */
+    public long getLongValue(String key, long defaultValue) {
+        final int head = this.headOf(keyOf(key));
+        if (head == -1)
+            return defaultValue;
+        final Object value = this.objectAt(head);
+        if (value == LONG_BITS)
+            return bits[head];
+        if (value instanceof Long)
+            return ((Long) value).longValue();
+        if (isText(value))
+            return Long.parseLong((String) value);
+        return defaultValue;
+    }
+    /**
+     * Answer the float stored for the key, either as float, Float or non-empty String.
+     */
+    public float getFloatValue(String key, float defaultValue) {
+        final int head = this.headOf(keyOf(key));
+        if (head == -1)
+            return defaultValue;
+        final Object value = this.objectAt(head);
+        if (value == FLOAT_BITS)
+            return Float.intBitsToFloat((int) bits[head]);
+        if (value instanceof Float)
+            return ((Float) value).floatValue();
+        if (isText(value))
+            return Float.parseFloat((String) value);
+        return defaultValue;
+    }
+    /**
+     * Answer the boolean stored for the key, either as boolean, Boolean or non-empty String.
+     */
+    public boolean getBooleanValue(String key, boolean defaultValue) {
+        final int head = this.headOf(keyOf(key));
+        if (head == -1)
+            return defaultValue;
+        final Object value = this.objectAt(head);
+        if (value == BOOLEAN_BITS)
+            return bits[head] != 0;
+        if (value instanceof Boolean)
+            return ((Boolean) value).booleanValue();
+        if (isText(value))
+            return Boolean.parseBoolean((String) value);
+        return defaultValue;
+    }
+
+    /**
+     * Answer the stored value or its Bits marker ; compute it if lazy.
+     */
+    private Object objectAt(int i) {
+        final Object value = values[i];
+        return value instanceof LazyValue ? ((LazyValue<?>) value).get() : value;
+    }
+
+    private static boolean isText(Object value) {
+        return value instanceof String && !((String) value).isEmpty();
+    }
+
+    /**
+     * Answer the number of entries of all levels, including those that are shadowed.
+     */
+    public int size() {
+        return live;
     }
 
     public Collection<Object> values() {
-        // might not be the most efficient implementation....
         List<Object> union = new ArrayList<Object>();
         for (String each : this.keySet()) {
             union.add(this.get(each));
@@ -214,15 +763,26 @@ public class StackedMap implements Map<String, Object> {
     }
     // Equals API
     /**
-     * @return the hash of the receiver
+     * @return the hash of the receiver ; the hashes of the levels combined
      */
     @Override
     public int hashCode() {
         int hash = 0;
-        for (Map<String,Object> here : stack) {
-            hash = hash | here.hashCode();
+        int levelHash = 0;
+        int levelDepth = -1;
+        // entries of one level are contiguous in the log
+        for (int i = 0; i < count; i++) {
+            if (values[i] == REMOVED)
+                continue;
+            if (depths[i] != levelDepth) {
+                hash = hash | levelHash;
+                levelHash = 0;
+                levelDepth = depths[i];
+            }
+            final Object value = this.valueAt(i);
+            levelHash += keys[i].hashCode() ^ (value == null ? 0 : value.hashCode());
         }
-        return hash;
+        return hash | levelHash;
     }
 
     /**
@@ -235,7 +795,7 @@ public class StackedMap implements Map<String, Object> {
 
         return this.entrySet().equals(((StackedMap) otherMap).entrySet());
     }
-    
+
     /**
      *  for debugging
      */
@@ -2,8 +2,6 @@ package org.rendersnake.internal;
 
 import java.io.IOException;
 import java.io.Writer;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
 import org.rendersnake.HtmlCanvas;
 
@@ -14,33 +12,21 @@ import org.rendersnake.HtmlCanvas;
  * @author ernest
  */
 public class StringEscapeUtils implements HtmlEscapeHandler {
-    private static final Logger LOG = Logger.getLogger("org.rendersnake.internal");
-    
     private StringEscapeUtils() {}
 
     /**
-     * 
+     * Install the default HtmlEscapeHandler ; HtmlCanvas does this on class initialization.
      */
     public static void init() {
-        // Try to setup the HtmlEscapeHandler for HtmlCanvas
-        // Log a warning if the apache commons handler is not available.
-        // In that case, you must provide your own implementation to the HtmlCanvas.HTML_ESCAPE_HANDLER static field.
-        try {
-            Class.forName("org.apache.commons.lang3.StringEscapeUtils");
-            HtmlEscapeHandler soleInstance = (HtmlEscapeHandler) Class.forName("org.rendersnake.ext.apache.CommonsHtmlEscapeHandler").newInstance();
-            HtmlCanvas.HTML_ESCAPE_HANDLER = soleInstance;
-        } catch (ClassNotFoundException e) {
-            LOG.warning("Unable to use org.apache.commons.lang.StringEscapeUtils, make sure to initialize the HtmlCanvas.HTML_ESCAPE_HANDLER static field.");
-        } catch (InstantiationException e) {
-            LOG.log(Level.SEVERE,"Unable to install org.rendersnake.ext.apache.CommonsHtmlEscapeHandler",e);
-        } catch (IllegalAccessException e) {
-            LOG.log(Level.SEVERE,"Unable to install org.rendersnake.ext.apache.CommonsHtmlEscapeHandler",e);
-        }
+        // The table-driven HtmlEscaper is the default.
+        // Assign the HtmlCanvas.HTML_ESCAPE_HANDLER static field to use another implementation,
+        // e.g. org.rendersnake.ext.apache.CommonsHtmlEscapeHandler for named entities.
+        HtmlCanvas.HTML_ESCAPE_HANDLER = HtmlEscaper.INSTANCE;
     }
 
     public void escapeHtml(Writer out, String text) throws IOException {
-        // Probably insufficient ; use Apache Commons Lang or other library.
-        this.escapeXml(out, text);        
+        // HTML5 ; non-ASCII characters are written as is
+        HtmlEscaper.escape(out, text);
     }
 
     /**
@@ -53,6 +39,7 @@ public class StringEscapeUtils implements HtmlEscapeHandler {
          * See google groups
          * http://groups.google.com/groups?q=java+escape+xml&start=10&hl=en&lr=&ie=UTF-8&selm=JPyaOQm2Fo7O2PeLfDykYBAsjKGw%404ax.com&rnum=12
          */
+        int start = 0;
         for (int i = 0; i < text.length(); i++) {
             char c = text.charAt(i);
             int v = (int) c;
@@ -63,11 +50,28 @@ public class StringEscapeUtils implements HtmlEscapeHandler {
                 // 62 is larger >
                 // 34 is quote "
                 // 39 is apos '
-                out.append('&').append('#').append(Integer.toString(v,10)).append(';');
-            } else {
-                out.append(c);
+                if (i > start)
+                    out.write(text, start, i - start);
+                writeCharacterReference(out, v);
+                start = i + 1;
             }
-        }           
+        }
+        if (text.length() > start)
+            out.write(text, start, text.length() - start);
+    }
+
+    /**
+     * Write &amp;#{v}; digit by digit, without creating a String or buffer.
+     */
+    private static void writeCharacterReference(Writer out, int v) throws IOException {
+        out.write('&');
+        out.write('#');
+        int divisor = 1;
+        while (v / divisor >= 10)
+            divisor *= 10;
+        for (; divisor > 0; divisor /= 10)
+            out.write('0' + v / divisor % 10);
+        out.write(';');
     }
 
     /**
@@ -76,23 +80,8 @@ public class StringEscapeUtils implements HtmlEscapeHandler {
      * @throws IOException
      */
     public void escapeEcmascript(Writer out, String text) throws IOException {
-        /**
-         * http://www.squarefree.com/securitytips/web-developers.html
-         */
-        for (int i = 0; i < text.length(); i++) {
-            char c = text.charAt(i);
-            int v = (int) c;
-            if (v == 92 || v == 47 || v == 34 || v == 39) {
-                // we must escape a character in format &#22;
-                // 92 is \
-                // 47 is /
-                // 34 is quote "
-                // 39 is apos '
-                out.append('&').append('#').append(Integer.toString(v,10)).append(';');
-            } else {
-                out.append(c);
-            }
-        }       
+        // JavaScript escapes (\xXX), not HTML entities
+        ContextEncoders.encodeJavaScriptString(out, text);
     }   
     // http://www.fiveanddime.net/HTMLescapeCodes.html
     /**
@@ -105,7 +94,7 @@ public class StringEscapeUtils implements HtmlEscapeHandler {
             char each = input.charAt(i);
             int v = (int) each;
             if (v < 32 || v > 127) {
-                out.append('&').append('#').append(Integer.toString(v,10)).append(';');
+                writeCharacterReference(out, v);
             } else {
                 out.append(each);
             }
@@ -0,0 +1,69 @@
+package org.rendersnake.internal;
+
+/**
+ * StringResourceCache is the storage of content read by StringResource.
+ * Implementations must be thread-safe.
+ *
+ * @author emicklei
+ */
+public interface StringResourceCache {
+
+    /**
+     * Answer the cached resource for a location and count a hit or a miss.
+     * @param location
+     * @return CachedResource | null
+     */
+    CachedResource get(String location);
+
+    /**
+     * Store the content for a location, replacing any previous one.
+     * @param location
+     * @param content , not null
+     * @return the stored CachedResource
+     */
+    CachedResource put(String location, String content);
+
+    /**
+     * Store the content for a location only if the location is still cached.
+     * @param location
+     * @param content , not null
+     * @return the stored CachedResource | null if the location is not cached
+     */
+    CachedResource replace(String location, String content);
+
+    /**
+     * Forget the content of a location. Ignore if missing.
+     * @param location
+     */
+    void remove(String location);
+
+    /**
+     * Forget all contents.
+     */
+    void clear();
+
+    /**
+     * @return the number of cached locations
+     */
+    int size();
+
+    /**
+     * @return the sum of the number of characters of all cached contents
+     */
+    long totalChars();
+
+    /**
+     * @return the number of get calls that answered a resource
+     */
+    long hitCount();
+
+    /**
+     * @return the number of get calls that answered null
+     */
+    long missCount();
+
+    /**
+     * @return the number of resources removed because of size limits or expiration
+     */
+    long evictionCount();
+}
@@ -0,0 +1,125 @@
+package org.rendersnake.internal;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * TagStack holds the closing tags of elements opened by a HtmlCanvas.
+ * Closing tags are interned String tokens such that the expected-tag check
+ * on close is a reference comparison for all generated element methods.
+ * Closing tags of custom elements are interned using closeTagFor(tagName).
+ *
+ * @author emicklei
+ */
+public class TagStack {
+    /**
+     * Maximum number of custom closing tags that are interned ; others are allocated per call.
+     */
+    public static int MAX_INTERNED_TAGS = 1024;
+    private static final ConcurrentMap<String, String> CLOSE_TAGS = new ConcurrentHashMap<String, String>();
+
+    private String[] tokens;
+    private int size = 0;
+
+    /**
+     * @param initialCapacity
+     */
+    public TagStack(int initialCapacity) {
+        this.tokens = new String[Math.max(initialCapacity, 4)];
+    }
+
+    /**
+     * Answer the interned closing tag &lt;/{tagName}&gt;.
+     * The result is identical to the String literal used by the generated element methods.
+     * @param tagName , not null
+     * @return String
+     */
+    public static String closeTagFor(String tagName) {
+        String closeTag = CLOSE_TAGS.get(tagName);
+        if (closeTag != null)
+            return closeTag;
+        closeTag = new StringBuilder(tagName.length() + 3).append('<').append('/').append(tagName).append('>').toString();
+        if (CLOSE_TAGS.size() >= MAX_INTERNED_TAGS)
+            return closeTag;
+        closeTag = closeTag.intern();
+        CLOSE_TAGS.putIfAbsent(tagName, closeTag);
+        return closeTag;
+    }
+
+    /**
+     * Push a closing tag.
+     * @param closeTag
+     */
+    public void add(String closeTag) {
+        if (size == tokens.length) {
+            String[] grown = new String[size * 2];
+            System.arraycopy(tokens, 0, grown, 0, size);
+            tokens = grown;
+        }
+        tokens[size++] = closeTag;
+    }
+
+    /**
+     * Remove and answer the most recent closing tag. The stack must not be empty.
+     * @return String
+     */
+    public String pop() {
+        String top = tokens[--size];
+        tokens[size] = null;
+        return top;
+    }
+
+    /**
+     * Answer the most recent closing tag or null if empty.
+     * @return String | null
+     */
+    public String peek() {
+        return size == 0 ? null : tokens[size - 1];
+    }
+
+    /**
+     * @param index , 0 is the bottom of the stack
+     * @return String
+     */
+    public String get(int index) {
+        if (index >= size)
+            throw new IndexOutOfBoundsException("index:" + index + " size:" + size);
+        return tokens[index];
+    }
+
+    /**
+     * @return the number of open tags
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return whether there are no open tags
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Forget all open tags.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++)
+            tokens[i] = null;
+        size = 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(size * 8 + 2);
+        sb.append('[');
+        for (int i = 0; i < size; i++) {
+            if (i > 0)
+                sb.append(',').append(' ');
+            sb.append(tokens[i]);
+        }
+        sb.append(']');
+        return sb.toString();
+    }
+}
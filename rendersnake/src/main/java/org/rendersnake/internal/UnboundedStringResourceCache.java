@@ -0,0 +1,82 @@
+package org.rendersnake.internal;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * UnboundedStringResourceCache keeps all contents. Unlimited size; no eviction or expiration.
+ * This is the default cache of StringResource.
+ *
+ * @author emicklei
+ */
+public class UnboundedStringResourceCache implements StringResourceCache {
+
+    private final ConcurrentMap<String, CachedResource> map = new ConcurrentHashMap<String, CachedResource>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong chars = new AtomicLong();
+
+    public CachedResource get(String location) {
+        CachedResource resource = map.get(location);
+        if (resource == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return resource;
+    }
+
+    public CachedResource put(String location, String content) {
+        CachedResource resource = new CachedResource(content);
+        CachedResource previous = map.put(location, resource);
+        chars.addAndGet(resource.length() - (previous == null ? 0 : previous.length()));
+        return resource;
+    }
+
+    public CachedResource replace(String location, String content) {
+        CachedResource resource = new CachedResource(content);
+        CachedResource previous = map.replace(location, resource);
+        if (previous == null)
+            return null;
+        chars.addAndGet(resource.length() - previous.length());
+        return resource;
+    }
+
+    public void remove(String location) {
+        CachedResource previous = map.remove(location);
+        if (previous != null)
+            chars.addAndGet(-previous.length());
+    }
+
+    public void clear() {
+        for (String each : map.keySet())
+            this.remove(each);
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public long totalChars() {
+        return chars.get();
+    }
+
+    public long hitCount() {
+        return hits.get();
+    }
+
+    public long missCount() {
+        return misses.get();
+    }
+
+    public long evictionCount() {
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + "{size=" + this.size() + ",chars=" + this.totalChars()
+            + ",hits=" + this.hitCount() + ",misses=" + this.missCount() + "}";
+    }
+}
@@ -0,0 +1,238 @@
+package org.rendersnake.internal;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * Utf8Writer is a Writer that encodes characters to UTF-8 directly into its own byte buffer
+ * and transfers that buffer to an io.OutputStream when full or flushed.
+ * It does not use a CharsetEncoder; all markup written by HtmlCanvas is ASCII which is copied
+ * byte for byte, only non-ASCII text is encoded into multi-byte sequences.
+ * Unpaired surrogates are written as '?'.
+ *
+ * This class is not thread-safe.
+ *
+ * @author emicklei
+ */
+public class Utf8Writer extends Writer {
+    /**
+     * Configurable parameter for the size of the byte buffer.
+     */
+    public static int DEFAULT_BUFFER_SIZE = 8192;
+
+    private OutputStream output;
+    private final byte[] buffer;
+    private int position = 0;
+    /**
+     * High surrogate of a pair that is split over two write calls ; 0 if none.
+     */
+    private char pendingHighSurrogate = 0;
+
+    /**
+     * @param output
+     */
+    public Utf8Writer(OutputStream output) {
+        this(output, DEFAULT_BUFFER_SIZE);
+    }
+    /**
+     * @param output
+     * @param bufferSize , at least 4
+     */
+    public Utf8Writer(OutputStream output, int bufferSize) {
+        super();
+        if (bufferSize < 4)
+            throw new IllegalArgumentException("bufferSize < 4");
+        this.output = output;
+        this.buffer = new byte[bufferSize];
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        this.encode((char) c);
+    }
+
+    @Override
+    public void write(String text) throws IOException {
+        this.write(text, 0, text.length());
+    }
+
+    @Override
+    public void write(String text, int offset, int length) throws IOException {
+        final int end = offset + length;
+        int i = offset;
+        while (i < end) {
+            // ASCII fast path ; stays inside the buffer without bounds checks per char
+            if (pendingHighSurrogate == 0) {
+                int room = Math.min(end - i, buffer.length - position);
+                final int asciiEnd = i + room;
+                while (i < asciiEnd) {
+                    char c = text.charAt(i);
+                    if (c >= 0x80) break;
+                    buffer[position++] = (byte) c;
+                    i++;
+                }
+                if (i == end) return;
+                if (position == buffer.length) {
+                    this.flushBuffer();
+                    continue;
+                }
+            }
+            this.encode(text.charAt(i++));
+        }
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+        final int end = offset + length;
+        int i = offset;
+        while (i < end) {
+            if (pendingHighSurrogate == 0) {
+                int room = Math.min(end - i, buffer.length - position);
+                final int asciiEnd = i + room;
+                while (i < asciiEnd) {
+                    char c = chars[i];
+                    if (c >= 0x80) break;
+                    buffer[position++] = (byte) c;
+                    i++;
+                }
+                if (i == end) return;
+                if (position == buffer.length) {
+                    this.flushBuffer();
+                    continue;
+                }
+            }
+            this.encode(chars[i++]);
+        }
+    }
+
+    @Override
+    public Writer append(CharSequence sequence) throws IOException {
+        if (sequence == null) {
+            this.write("null");
+        } else {
+            this.write(sequence.toString());
+        }
+        return this;
+    }
+
+    @Override
+    public Writer append(char c) throws IOException {
+        this.encode(c);
+        return this;
+    }
+
+    /**
+     * Write bytes that are already UTF-8 encoded.
+     * @param utf8
+     * @throws IOException
+     */
+    public void writeBytes(byte[] utf8) throws IOException {
+        this.writeBytes(utf8, 0, utf8.length);
+    }
+
+    /**
+     * Write bytes that are already UTF-8 encoded.
+     * @param utf8
+     * @param offset
+     * @param length
+     * @throws IOException
+     */
+    public void writeBytes(byte[] utf8, int offset, int length) throws IOException {
+        this.writePendingSurrogate();
+        if (length > buffer.length - position) {
+            this.flushBuffer();
+            if (length > buffer.length) {
+                // no need to copy large chunks
+                output.write(utf8, offset, length);
+                return;
+            }
+        }
+        System.arraycopy(utf8, offset, buffer, position, length);
+        position += length;
+    }
+
+    private void encode(char c) throws IOException {
+        if (buffer.length - position < 4)
+            this.flushBuffer();
+        if (pendingHighSurrogate != 0) {
+            char high = pendingHighSurrogate;
+            pendingHighSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                int codePoint = Character.toCodePoint(high, c);
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+                return;
+            }
+            buffer[position++] = '?';
+            if (buffer.length - position < 3)
+                this.flushBuffer();
+        }
+        if (c < 0x80) {
+            buffer[position++] = (byte) c;
+        } else if (c < 0x800) {
+            buffer[position++] = (byte) (0xC0 | (c >> 6));
+            buffer[position++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c)) {
+            pendingHighSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            buffer[position++] = '?';
+        } else {
+            buffer[position++] = (byte) (0xE0 | (c >> 12));
+            buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buffer[position++] = (byte) (0x80 | (c & 0x3F));
+        }
+    }
+
+    private void writePendingSurrogate() throws IOException {
+        if (pendingHighSurrogate == 0) return;
+        pendingHighSurrogate = 0;
+        if (position == buffer.length)
+            this.flushBuffer();
+        buffer[position++] = '?';
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position > 0) {
+            output.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    /**
+     * Drop all encoded bytes that are not yet transferred and write to another output from now on.
+     * @param output
+     */
+    public void reset(OutputStream output) {
+        this.output = output;
+        this.position = 0;
+        this.pendingHighSurrogate = 0;
+    }
+
+    /**
+     * Return the number of encoded bytes that are not yet transferred to the output.
+     * @return
+     */
+    public int buffered() {
+        return position;
+    }
+
+    /**
+     * Transfer all encoded bytes to the output and flush it.
+     * A high surrogate that is still waiting for its pair is kept.
+     */
+    @Override
+    public void flush() throws IOException {
+        this.flushBuffer();
+        output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.writePendingSurrogate();
+        this.flushBuffer();
+        output.close();
+    }
+}
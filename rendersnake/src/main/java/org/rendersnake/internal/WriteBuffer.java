@@ -56,11 +56,46 @@ public class WriteBuffer extends Writer {
         this.end += l;
     }
 
+    /**
+     * Append the string, replacing characters by entities where needed (see HtmlEscaper).
+     * @param s
+     */
+    public void appendEscaped(String s) {
+        final int l = HtmlEscaper.escapedLength(s);
+        if (l == s.length()) {
+            this.append(s);
+            return;
+        }
+        while (begin + l > buffer.length)
+            this.grow();
+        int next = HtmlEscaper.escape(s, this.buffer, this.begin);
+        this.end += next - this.begin;
+        this.begin = next;
+    }
+
     /**
      * @param integer
      */
     public void append(int integer) {
-        this.append(String.valueOf(integer));
+        if (integer == Integer.MIN_VALUE) {
+            this.append(String.valueOf(integer));
+            return;
+        }
+        if (integer < 0) {
+            this.append('-');
+            integer = -integer;
+        }
+        int digits = 1;
+        for (int rest = integer / 10; rest > 0; rest /= 10) digits++;
+        while (begin + digits > buffer.length)
+            this.grow();
+        // write the digits from right to left, without a String
+        for (int i = begin + digits - 1; i >= begin; i--) {
+            buffer[i] = (char) ('0' + integer % 10);
+            integer /= 10;
+        }
+        this.begin += digits;
+        this.end += digits;
     }
 
     public String toString() {
@@ -97,7 +132,30 @@ public class WriteBuffer extends Writer {
 	public void flush() throws IOException {}
 
 	@Override
-	public void write(char[] charArray, int from, int to) throws IOException {
-		for (int i=from;i<to;i++) this.append(charArray[i]);		
+	public void write(char[] charArray, int off, int len) throws IOException {
+		while (begin + len > buffer.length)
+			this.grow();
+		System.arraycopy(charArray, off, this.buffer, this.begin, len);
+		this.begin += len;
+		this.end += len;
+	}
+
+	@Override
+	public void write(String s, int off, int len) throws IOException {
+		while (begin + len > buffer.length)
+			this.grow();
+		s.getChars(off, off + len, this.buffer, this.begin);
+		this.begin += len;
+		this.end += len;
+	}
+
+	@Override
+	public void write(String s) throws IOException {
+		this.append(s);
+	}
+
+	@Override
+	public void write(int c) throws IOException {
+		this.append((char) c);
 	}
 }
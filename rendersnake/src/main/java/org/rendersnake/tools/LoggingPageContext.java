@@ -2,26 +2,71 @@ package org.rendersnake.tools;
 
 import java.util.logging.Logger;
 
+import org.rendersnake.LazyValue;
 import org.rendersnake.PageContext;
+import org.rendersnake.internal.StackedMap;
 
 public class LoggingPageContext extends PageContext {
     private static final Logger LOG = Logger.getLogger("org.rendersnake.tools");
 
+    public LoggingPageContext() {
+        super();
+    }
+
+    protected LoggingPageContext(StackedMap attributes) {
+        super(attributes);
+    }
+
     @Override
     public PageContext withObject(String key, Object value) {
-        LOG.fine("PageContext.["+this.attributes.getDepth()+"].set(" + key + "," + value + ")");
+        LOG.fine("PageContext.["+this.getDepth()+"].set(" + key + "," + value + ")");
         return super.withObject(key, value);
     }
 
+    @Override
+    public PageContext withLazy(String key, LazyValue<?> value) {
+        LOG.fine("PageContext.["+this.getDepth()+"].set(" + key + "," + value + ")");
+        return super.withLazy(key, value);
+    }
+
     @Override
     public PageContext withInteger(String key, Integer number) {
-        LOG.fine("PageContext.["+this.attributes.getDepth()+"].set(" + key + "," + number + ")");
+        LOG.fine("PageContext.["+this.getDepth()+"].set(" + key + "," + number + ")");
         return super.withInteger(key, number);
     }
 
     @Override
     public PageContext withBoolean(String key, Boolean trueOrFalse) {
-        LOG.fine("PageContext.["+this.attributes.getDepth()+"].set(" + key + "," + trueOrFalse + ")");
+        LOG.fine("PageContext.["+this.getDepth()+"].set(" + key + "," + trueOrFalse + ")");
+        return super.withBoolean(key, trueOrFalse);
+    }
+
+    @Override
+    public PageContext withInteger(String key, int number) {
+        LOG.fine("PageContext.["+this.getDepth()+"].set(" + key + "," + number + ")");
+        return super.withInteger(key, number);
+    }
+
+    @Override
+    public PageContext withLong(String key, long aLong) {
+        LOG.fine("PageContext.["+this.getDepth()+"].set(" + key + "," + aLong + ")");
+        return super.withLong(key, aLong);
+    }
+
+    @Override
+    public PageContext withFloat(String key, float aFloat) {
+        LOG.fine("PageContext.["+this.getDepth()+"].set(" + key + "," + aFloat + ")");
+        return super.withFloat(key, aFloat);
+    }
+
+    @Override
+    public PageContext withBoolean(String key, boolean trueOrFalse) {
+        LOG.fine("PageContext.["+this.getDepth()+"].set(" + key + "," + trueOrFalse + ")");
         return super.withBoolean(key, trueOrFalse);
     }
+
+    @Override
+    protected PageContext createFork(StackedMap attributes) {
+        return new LoggingPageContext(attributes);
+    }
 }
@@ -0,0 +1,77 @@
+package org.rendersnake.test;
+
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.rendersnake.HtmlCanvas;
+import org.rendersnake.ext.servlet.AsyncResponseWriter;
+
+public class AsyncResponseWriterTest extends TestCase {
+
+    MockHttpRequest request = new MockHttpRequest();
+    MockServletOutputStream out = new MockServletOutputStream();
+    AsyncResponseWriter writer;
+
+    @Override
+    protected void setUp() throws Exception {
+        request.startAsync();
+        writer = new AsyncResponseWriter(request.asyncContext, out, "UTF-8");
+    }
+
+    public void testWriteWhenReady() throws IOException {
+        out.setWriteListener(writer);
+        new HtmlCanvas(writer).html().body().content("été")._html();
+        assertEquals(0, out.bytes.size());
+        writer.close();
+        assertEquals("<html><body>été</body></html>", out.toString());
+        assertTrue(writer.isCompleted());
+        assertTrue(request.asyncContext.completed);
+    }
+
+    public void testWaitForListener() throws IOException {
+        writer.write("early");
+        writer.close();
+        assertFalse(writer.isCompleted());
+        assertEquals(1, writer.getQueuedCount());
+        out.setWriteListener(writer);
+        assertEquals("early", out.toString());
+        assertTrue(writer.isCompleted());
+    }
+
+    public void testNotReady() throws IOException {
+        out.setWriteListener(writer);
+        out.ready = false;
+        writer.write("first");
+        writer.flush();
+        writer.write("second");
+        writer.close();
+        assertEquals(2, writer.getQueuedCount());
+        assertFalse(request.asyncContext.completed);
+        out.becomeReady();
+        assertEquals("firstsecond", out.toString());
+        assertTrue(request.asyncContext.completed);
+    }
+
+    public void testWriteAfterError() throws IOException {
+        out.setWriteListener(writer);
+        writer.onError(new IOException("client gone"));
+        assertTrue(request.asyncContext.completed);
+        writer.write("lost");
+        try {
+            writer.flush();
+            fail("should fail");
+        } catch (IOException ex) {
+            assertEquals("client gone", ex.getCause().getMessage());
+        }
+    }
+
+    public void testAbort() throws IOException {
+        out.setWriteListener(writer);
+        writer.write("partial");
+        writer.abort();
+        writer.close();
+        assertTrue(request.asyncContext.completed);
+        assertEquals(0, out.bytes.size());
+    }
+}
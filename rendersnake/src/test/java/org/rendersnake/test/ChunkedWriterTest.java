@@ -0,0 +1,52 @@
+package org.rendersnake.test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import junit.framework.TestCase;
+
+import org.rendersnake.HtmlCanvas;
+import org.rendersnake.internal.ChunkedWriter;
+
+public class ChunkedWriterTest extends TestCase {
+
+    static class CountingWriter extends StringWriter {
+        int flushes = 0;
+        @Override
+        public void flush() {
+            flushes++;
+        }
+    }
+
+    public void testBuffersUntilFull() throws IOException {
+        CountingWriter target = new CountingWriter();
+        ChunkedWriter writer = new ChunkedWriter(target, 4);
+        writer.write("abc");
+        assertEquals("", target.toString());
+        assertEquals(-1, writer.getTimeToFirstByteNanos());
+        writer.write("def");
+        assertEquals("abcd", target.toString());
+        assertTrue(writer.getTimeToFirstByteNanos() >= 0);
+        assertEquals(0, target.flushes);
+        writer.write('g');
+        writer.write("0123456789".toCharArray(), 0, 10);
+        writer.finish();
+        assertEquals("abcdefg0123456789", target.toString());
+        assertEquals(17, writer.getCharsWritten());
+        assertTrue(writer.getTotalNanos() >= writer.getTimeToFirstByteNanos());
+    }
+
+    public void testFlushPoint() throws IOException {
+        CountingWriter target = new CountingWriter();
+        HtmlCanvas html = new HtmlCanvas(new ChunkedWriter(target, 1024));
+        html.html().head().title().content("Streaming")._head();
+        assertEquals("", target.toString());
+        html.flushPoint();
+        assertEquals("<html><head><title>Streaming</title></head>", target.toString());
+        assertEquals(1, target.flushes);
+        html.body().content("done")._html();
+        ((ChunkedWriter) html.getOutputWriter()).finish();
+        assertEquals(2, target.flushes);
+        assertTrue(target.toString().endsWith("<body>done</body></html>"));
+    }
+}
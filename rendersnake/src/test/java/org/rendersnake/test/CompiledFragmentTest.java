@@ -0,0 +1,163 @@
+package org.rendersnake.test;
+
+import static org.rendersnake.HtmlAttributesFactory.class_;
+import static org.rendersnake.HtmlAttributesFactory.id;
+
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.rendersnake.CompiledFragment;
+import org.rendersnake.HtmlCanvas;
+import org.rendersnake.LazyValue;
+import org.rendersnake.Renderable;
+
+public class CompiledFragmentTest extends TestCase {
+
+    static int footerRenders = 0;
+    static int greetingRenders = 0;
+
+    static class Footer implements Renderable {
+        public void renderOn(HtmlCanvas html) throws IOException {
+            footerRenders++;
+            html.div(class_("footer")).write("(c) 2010")._div();
+        }
+    }
+    static class Greeting implements Renderable {
+        public void renderOn(HtmlCanvas html) throws IOException {
+            greetingRenders++;
+            html.span().write(html.getPageContext().getString("name"))._span();
+        }
+    }
+    static class Layout implements Renderable {
+        public void renderOn(HtmlCanvas html) throws IOException {
+            html.div().render(new Greeting()).render(new Footer())._div();
+        }
+    }
+    static class Setter implements Renderable {
+        public void renderOn(HtmlCanvas html) throws IOException {
+            html.getPageContext().withString("name", "inner");
+            html.p().render(new Greeting())._p();
+        }
+    }
+    static class Unbalanced implements Renderable {
+        public void renderOn(HtmlCanvas html) throws IOException {
+            html.div();
+        }
+    }
+
+    public void setUp() {
+        footerRenders = 0;
+        greetingRenders = 0;
+    }
+
+    public void testConstantIsReplayed() throws Exception {
+        CompiledFragment footer = new CompiledFragment(new Footer());
+        for (int i = 0; i < 3; i++) {
+            HtmlCanvas html = new HtmlCanvas();
+            html.render(footer);
+            assertEquals("<div class=\"footer\">(c) 2010</div>", html.toHtml());
+        }
+        assertEquals(1, footerRenders);
+        assertFalse(footer.isDynamic());
+    }
+
+    public void testHoleIsRenderedEachTime() throws Exception {
+        CompiledFragment layout = new CompiledFragment(new Layout());
+        for (String name : new String[] { "john", "jane" }) {
+            HtmlCanvas html = new HtmlCanvas();
+            html.getPageContext().withString("name", name);
+            html.render(layout);
+            assertEquals("<div><span>" + name + "</span><div class=\"footer\">(c) 2010</div></div>", html.toHtml());
+        }
+        assertEquals(1, footerRenders);
+    }
+
+    public void testWriterWithHoleBelowIsDynamic() throws Exception {
+        CompiledFragment setter = new CompiledFragment(new Setter());
+        for (int i = 0; i < 2; i++) {
+            HtmlCanvas html = new HtmlCanvas();
+            html.getPageContext().withString("name", "outer");
+            html.render(setter);
+            assertEquals("<p><span>inner</span></p>", html.toHtml());
+            assertEquals("outer", html.getPageContext().getString("name"));
+        }
+        assertTrue(setter.isDynamic());
+    }
+
+    public void testNextIdIsDynamic() throws Exception {
+        CompiledFragment ids = new CompiledFragment(new Renderable() {
+            public void renderOn(HtmlCanvas html) throws IOException {
+                html.write(html.nextId());
+            }
+        });
+        HtmlCanvas html = new HtmlCanvas();
+        html.render(ids).render(ids);
+        assertEquals("id1id2", html.toHtml());
+    }
+
+    public void testUnbalancedIsDynamic() throws Exception {
+        CompiledFragment open = new CompiledFragment(new Unbalanced());
+        HtmlCanvas html = new HtmlCanvas();
+        html.render(open)._div();
+        assertEquals("<div></div>", html.toHtml());
+        assertTrue(open.isDynamic());
+    }
+
+    public void testHoleIsRenderedOnceOnFirstRender() throws Exception {
+        CompiledFragment layout = new CompiledFragment(new Layout());
+        HtmlCanvas html = new HtmlCanvas();
+        html.getPageContext().withString("name", "john");
+        html.render(layout);
+        assertEquals("<div><span>john</span><div class=\"footer\">(c) 2010</div></div>", html.toHtml());
+        assertEquals(1, greetingRenders);
+        html.render(layout);
+        assertEquals(2, greetingRenders);
+    }
+
+    public void testLazyValueIsNotComputedByRecording() throws Exception {
+        final int[] computed = new int[1];
+        CompiledFragment footer = new CompiledFragment(new Footer());
+        HtmlCanvas html = new HtmlCanvas();
+        html.getPageContext().withLazy("expensive", new LazyValue<String>() {
+            protected String compute() {
+                computed[0]++;
+                return "value";
+            }
+        });
+        html.render(footer);
+        assertEquals(0, computed[0]);
+    }
+
+    public void testNextIdOfHoleOnFirstRender() throws Exception {
+        CompiledFragment ids = new CompiledFragment(new Renderable() {
+            public void renderOn(HtmlCanvas html) throws IOException {
+                html.p().render(new Renderable() {
+                    public void renderOn(HtmlCanvas html) throws IOException {
+                        html.write(html.nextId());
+                    }
+                })._p();
+            }
+        });
+        HtmlCanvas html = new HtmlCanvas();
+        html.write(html.nextId()).render(ids).render(ids);
+        assertEquals("id1<p>id2</p><p>id3</p>", html.toHtml());
+    }
+
+    public void testHoleInsideElementWithAttributes() throws Exception {
+        CompiledFragment fragment = new CompiledFragment(new Renderable() {
+            public void renderOn(HtmlCanvas html) throws IOException {
+                html.div(id("x")).render(new Greeting())._div();
+                html.open("p").class_("y");
+                html.render(new Greeting())._p();
+            }
+        });
+        for (String name : new String[] { "john", "jane" }) {
+            HtmlCanvas html = new HtmlCanvas();
+            html.getPageContext().withString("name", name);
+            html.render(fragment);
+            assertEquals("<div id=\"x\"><span>" + name + "</span></div><p class=\"y\"><span>" + name + "</span></p>", html.toHtml());
+        }
+        assertFalse(fragment.isDynamic());
+    }
+}
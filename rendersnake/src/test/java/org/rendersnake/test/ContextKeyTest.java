@@ -0,0 +1,114 @@
+package org.rendersnake.test;
+
+import junit.framework.TestCase;
+
+import org.rendersnake.ContextKey;
+import org.rendersnake.PageContext;
+import org.rendersnake.internal.StackedMap;
+
+public class ContextKeyTest extends TestCase {
+
+    static final ContextKey<Integer> SIZE = ContextKey.ofInteger("size");
+    static final ContextKey<String> TITLE = ContextKey.ofString("title");
+    static final ContextKey<Boolean> ENABLED = ContextKey.ofBoolean("enabled");
+    static final ContextKey<StringBuilder> BUILDER = ContextKey.of("builder", StringBuilder.class);
+
+    PageContext ctx = new PageContext();
+
+    public void testTypedValue() {
+        ctx.with(SIZE, 12);
+        assertEquals(Integer.valueOf(12), ctx.get(SIZE));
+        assertEquals(Integer.valueOf(12), ctx.getInteger("size"));
+    }
+
+    public void testVisibleByName() {
+        ctx.withString("title", "Home");
+        assertEquals("Home", ctx.get(TITLE));
+        ctx.with(TITLE, "About");
+        assertEquals("About", ctx.getString("title"));
+    }
+
+    public void testDefault() {
+        assertEquals(Integer.valueOf(42), ctx.get(SIZE, 42));
+        assertNull(ctx.get(SIZE));
+    }
+
+    public void testConvertedOnce() {
+        ctx.withString("size", "20");
+        Integer first = ctx.get(SIZE);
+        assertEquals(Integer.valueOf(20), first);
+        assertSame(first, ctx.get(SIZE));
+        // the stored value is untouched
+        assertEquals("20", ctx.getString("size"));
+        ctx.withString("size", "21");
+        assertEquals(Integer.valueOf(21), ctx.get(SIZE));
+    }
+
+    public void testNoConverter() {
+        ctx.withString("builder", "text");
+        assertNull(ctx.get(BUILDER));
+        ctx.withString("enabled", "");
+        assertNull(ctx.get(ENABLED));
+    }
+
+    public void testScoped() {
+        StackedMap map = new StackedMap();
+        map.put(SIZE, 1);
+        map.push();
+        map.put(SIZE, 2);
+        assertEquals(Integer.valueOf(2), map.get(SIZE));
+        map.pop();
+        assertEquals(Integer.valueOf(1), map.get(SIZE));
+        map.remove("size");
+        assertNull(map.get(SIZE));
+    }
+
+    public void testResolvedAfterRehash() {
+        StackedMap map = new StackedMap();
+        map.put(SIZE, 1);
+        assertEquals(Integer.valueOf(1), map.get(SIZE));
+        for (int i = 0; i < 100; i++) {
+            map.put("key" + i, i);
+        }
+        assertEquals(Integer.valueOf(1), map.get(SIZE));
+        map.put(SIZE, 3);
+        assertEquals(Integer.valueOf(3), map.get("size"));
+    }
+
+    public void testNullKey() {
+        StackedMap map = new StackedMap();
+        try {
+            map.get((ContextKey<String>) null);
+            fail("get with null key");
+        } catch (IllegalArgumentException ex) {
+            // as expected
+        }
+        try {
+            map.put((ContextKey<String>) null, "x");
+            fail("put with null key");
+        } catch (IllegalArgumentException ex) {
+            // as expected
+        }
+    }
+
+    public void testSameNameSharesIndex() {
+        ContextKey<String> text = ContextKey.ofString("shared.name");
+        ContextKey<Integer> number = ContextKey.ofInteger("shared.name");
+        assertEquals(text.getIndex(), number.getIndex());
+        assertEquals(text.getIndex(), ContextKey.ofString("shared.name").getIndex());
+    }
+    public void testNoIndexAfterMaximum() {
+        int max = ContextKey.MAX_INDEXED_NAMES;
+        ContextKey.MAX_INDEXED_NAMES = 0;
+        try {
+            ContextKey<Integer> key = ContextKey.ofInteger("not.indexed.name");
+            assertEquals(ContextKey.NO_INDEX, key.getIndex());
+            StackedMap map = new StackedMap();
+            map.put(key, 42);
+            assertEquals(Integer.valueOf(42), map.get(key));
+            assertEquals(42, map.get("not.indexed.name"));
+        } finally {
+            ContextKey.MAX_INDEXED_NAMES = max;
+        }
+    }
+}
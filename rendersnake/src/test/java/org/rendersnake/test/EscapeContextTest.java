@@ -0,0 +1,57 @@
+package org.rendersnake.test;
+
+import java.io.StringWriter;
+import java.net.URLDecoder;
+
+import junit.framework.TestCase;
+
+import org.rendersnake.EscapeContext;
+import org.rendersnake.HtmlAttributes;
+import org.rendersnake.HtmlCanvas;
+
+public class EscapeContextTest extends TestCase {
+
+    private String encode(EscapeContext context, String text) throws Exception {
+        StringWriter out = new StringWriter();
+        context.encode(out, text);
+        return out.toString();
+    }
+    public void testUrlComponent() throws Exception {
+        assertEquals("rock%20%26%20roll", encode(EscapeContext.URL_COMPONENT, "rock & roll"));
+        assertEquals("a-b.c_d~e", encode(EscapeContext.URL_COMPONENT, "a-b.c_d~e"));
+        String text = "Grüße/€ 😀?";
+        assertEquals(text, URLDecoder.decode(encode(EscapeContext.URL_COMPONENT, text), "UTF-8"));
+    }
+    public void testJavaScriptString() throws Exception {
+        assertEquals("it\\x27s \\x3C\\x2Fscript\\x3E\\x0A", encode(EscapeContext.JAVASCRIPT_STRING, "it's </script>\n"));
+        assertEquals("line\\u2028end", encode(EscapeContext.JAVASCRIPT_STRING, "line\u2028end"));
+        assertEquals("Jérôme", encode(EscapeContext.JAVASCRIPT_STRING, "Jérôme"));
+    }
+    public void testCssString() throws Exception {
+        assertEquals("a\\22 b\\29 ", encode(EscapeContext.CSS_STRING, "a\"b)"));
+        assertEquals("#fff, 10%", encode(EscapeContext.CSS_STRING, "#fff, 10%"));
+    }
+    public void testAttribute() throws Exception {
+        assertEquals(" data-js=\"it\\x27s\"", new HtmlAttributes().add("data-js", "it's", EscapeContext.JAVASCRIPT_STRING).toHtml());
+    }
+    public void testAddUrl() throws Exception {
+        assertEquals(" href=\"/search?q=rock%20%26%20roll&amp;page=2\"",
+                new HtmlAttributes().addUrl("href", "/search", "q", "rock & roll", "page", "2", "skip", null).toHtml());
+        assertEquals(" href=\"/search?a=1&amp;b=%3D\"", new HtmlAttributes().addUrl("href", "/search?a=1", "b", "=").toHtml());
+    }
+    public void testStreamingAddUrl() throws Exception {
+        HtmlCanvas html = new HtmlCanvas();
+        html.open("a").addUrl("href", "/p", "id", "<1>");
+        html._a();
+        assertEquals("<a href=\"/p?id=%3C1%3E\"></a>", html.toHtml());
+    }
+    public void testScriptEscaped() throws Exception {
+        assertEquals(" onclick=\"alert(&quot;hi&quot;)\"", new HtmlAttributes().onClick("alert(\"hi\")").toHtml());
+        assertEquals(" onclick=\"alert(\"hi\")\"", new HtmlAttributes().addScript("onclick", "alert(\"hi\")", false).toHtml());
+    }
+    public void testCanvasWrite() throws Exception {
+        HtmlCanvas html = new HtmlCanvas();
+        html.write("var s='", false).write("O'Neil", EscapeContext.JAVASCRIPT_STRING).write("';", false);
+        assertEquals("var s='O\\x27Neil';", html.toHtml());
+    }
+}
@@ -0,0 +1,161 @@
+package org.rendersnake.test;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.concurrent.Executor;
+
+import javax.servlet.ServletException;
+
+import junit.framework.TestCase;
+
+import org.rendersnake.HtmlCanvas;
+import org.rendersnake.Renderable;
+import org.rendersnake.RequestUtils;
+import org.rendersnake.ext.guice.GuiceComponentServlet;
+import org.rendersnake.ext.servlet.RouteTable;
+import org.rendersnake.ext.spring.HtmlCanvasFactory;
+
+public class GuiceComponentServletTest extends TestCase {
+
+    public static class HelloPage implements Renderable {
+        public void renderOn(HtmlCanvas html) throws IOException {
+            html.p().content("hello " + Thread.currentThread().getName());
+        }
+    }
+
+    public static class FailingPage implements Renderable {
+        public void renderOn(HtmlCanvas html) throws IOException {
+            throw new IOException("backend down");
+        }
+    }
+
+    public static class UserPage implements Renderable {
+        public void renderOn(HtmlCanvas html) throws IOException {
+            html.p().content("user " + RequestUtils.getPathParameter(html, "id"));
+        }
+    }
+
+    MockHttpRequest request = new MockHttpRequest();
+    MockHttpResponse response = new MockHttpResponse();
+    GuiceComponentServlet servlet;
+
+    // the bindings of the Guice injector are replaced because its proxies need an older JVM
+    @SuppressWarnings("unchecked")
+    @Override
+    protected void setUp() throws Exception {
+        servlet = new GuiceComponentServlet();
+        Field field = GuiceComponentServlet.class.getDeclaredField("pageRoutes");
+        field.setAccessible(true);
+        RouteTable<Renderable> routes = (RouteTable<Renderable>) field.get(servlet);
+        routes.add("/hello", new HelloPage());
+        routes.add("/fail", new FailingPage());
+        routes.add("/users/{id}", new UserPage());
+    }
+
+    // runs the render task after the container thread has returned
+    static class QueueExecutor implements Executor {
+        Runnable task;
+        public void execute(Runnable command) {
+            task = command;
+        }
+    }
+
+    public void testSynchronous() throws ServletException, IOException {
+        request.pathInfo = "/hello";
+        servlet.service(request, response);
+        response.getWriter().flush();
+        assertNull(request.asyncContext);
+        assertEquals("<p>hello main</p>", response.outputStream.toString());
+    }
+
+    public void testPathParameter() throws ServletException, IOException {
+        request.pathInfo = "/users/42";
+        servlet.service(request, response);
+        response.getWriter().flush();
+        assertEquals("<p>user 42</p>", response.outputStream.toString());
+    }
+
+    public void testAsynchronous() throws ServletException, IOException {
+        QueueExecutor executor = new QueueExecutor();
+        servlet.setExecutor(executor);
+        request.asyncSupported = true;
+        request.pathInfo = "/hello";
+        servlet.service(request, response);
+        request.asyncContext.dispatchReturned = true;
+        assertFalse(request.asyncContext.completed);
+        assertEquals(0, response.outputStream.bytes.size());
+
+        Thread render = new Thread(executor.task, "render");
+        render.start();
+        join(render);
+        assertTrue(request.asyncContext.completed);
+        assertEquals("<p>hello render</p>", response.outputStream.toString());
+    }
+
+    public void testAsyncNotSupported() throws ServletException, IOException {
+        QueueExecutor executor = new QueueExecutor();
+        servlet.setExecutor(executor);
+        request.pathInfo = "/hello";
+        servlet.service(request, response);
+        assertNull(executor.task);
+        assertNull(request.asyncContext);
+    }
+
+    public void testAsynchronousFailure() throws ServletException, IOException {
+        QueueExecutor executor = new QueueExecutor();
+        servlet.setExecutor(executor);
+        request.asyncSupported = true;
+        request.pathInfo = "/fail";
+        servlet.service(request, response);
+        request.asyncContext.dispatchReturned = true;
+        executor.task.run();
+        assertTrue(request.asyncContext.completed);
+        assertEquals(500, response.status);
+    }
+
+    public void testAsynchronousReleasesCanvas() throws ServletException, IOException {
+        HtmlCanvasFactory.POOLING_ENABLED = true;
+        try {
+            QueueExecutor executor = new QueueExecutor();
+            servlet.setExecutor(executor);
+            request.asyncSupported = true;
+            request.pathInfo = "/hello";
+            servlet.service(request, response);
+            request.asyncContext.dispatchReturned = true;
+            int pooled = HtmlCanvasFactory.getPool().size();
+            executor.task.run();
+            assertTrue(request.asyncContext.completed);
+            assertTrue(HtmlCanvasFactory.getPool().size() >= Math.max(pooled, 1));
+        } finally {
+            HtmlCanvasFactory.POOLING_ENABLED = false;
+        }
+    }
+
+    public void testAsynchronousFailureReleasesCanvas() throws ServletException, IOException {
+        HtmlCanvasFactory.POOLING_ENABLED = true;
+        HtmlCanvasFactory.STREAMING_ENABLED = true;
+        try {
+            QueueExecutor executor = new QueueExecutor();
+            servlet.setExecutor(executor);
+            request.asyncSupported = true;
+            request.pathInfo = "/fail";
+            servlet.service(request, response);
+            request.asyncContext.dispatchReturned = true;
+            int pooled = HtmlCanvasFactory.getPool().size();
+            executor.task.run();
+            assertTrue(request.asyncContext.completed);
+            assertTrue(HtmlCanvasFactory.getPool().size() >= Math.max(pooled, 1));
+        } finally {
+            HtmlCanvasFactory.POOLING_ENABLED = false;
+            HtmlCanvasFactory.STREAMING_ENABLED = false;
+        }
+    }
+
+    private void join(Thread thread) {
+        try {
+            thread.join(5000);
+        } catch (InterruptedException ex) {
+            fail(ex.getMessage());
+        }
+    }
+}
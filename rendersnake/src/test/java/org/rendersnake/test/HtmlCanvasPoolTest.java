@@ -0,0 +1,130 @@
+package org.rendersnake.test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import junit.framework.TestCase;
+
+import org.rendersnake.HtmlCanvas;
+import org.rendersnake.StreamingAttributes;
+import org.rendersnake.ext.servlet.HtmlCanvasPool;
+import org.rendersnake.ext.servlet.HtmlServletCanvas;
+import org.rendersnake.ext.spring.HtmlCanvasFactory;
+import org.rendersnake.internal.ChunkedWriter;
+
+public class HtmlCanvasPoolTest extends TestCase {
+
+    HtmlCanvasPool pool = new HtmlCanvasPool(8);
+
+    public void testReuse() {
+        HtmlServletCanvas first = pool.acquire(new MockHttpRequest(), new MockHttpResponse(), new StringWriter());
+        pool.release(first);
+        assertEquals(1, pool.size());
+        assertNull(first.request);
+        MockHttpRequest request = new MockHttpRequest();
+        HtmlServletCanvas second = pool.acquire(request, new MockHttpResponse(), new StringWriter());
+        assertSame(first, second);
+        assertSame(request, second.request);
+        assertEquals(0, pool.size());
+    }
+
+    public void testResetState() throws IOException {
+        HtmlServletCanvas html = pool.acquire(new MockHttpRequest(), new MockHttpResponse(), new StringWriter());
+        html.getPageContext().withString("title", "first");
+        html.getPageContext().attributes.push();
+        html.html().body();
+        String id = html.nextId();
+        pool.release(html);
+
+        StringWriter out = new StringWriter();
+        HtmlServletCanvas reused = pool.acquire(new MockHttpRequest(), new MockHttpResponse(), out);
+        assertSame(html, reused);
+        assertNull(reused.getPageContext().getString("title"));
+        assertEquals(1, reused.getPageContext().getDepth());
+        assertEquals(id, reused.nextId());
+        reused.html()._html();
+        assertEquals("<html></html>", out.toString());
+    }
+
+    public void testResetDiscardsPendingOpenTag() throws IOException {
+        StringWriter previous = new StringWriter();
+        HtmlServletCanvas html = pool.acquire(new MockHttpRequest(), new MockHttpResponse(), previous);
+        StreamingAttributes attributes = html.open("p");
+        // rendering failed here
+        pool.release(html);
+
+        StringWriter out = new StringWriter();
+        HtmlServletCanvas reused = pool.acquire(new MockHttpRequest(), new MockHttpResponse(), out);
+        try {
+            attributes.class_("stale");
+            fail("attribute added to a discarded open tag");
+        } catch (IllegalStateException ex) {
+            // as expected
+        }
+        reused.div()._div();
+        assertEquals("<p", previous.toString());
+        assertEquals("<div></div>", out.toString());
+    }
+
+    public void testReleaseDropsChunkedTarget() throws IOException {
+        StringWriter previous = new StringWriter();
+        HtmlServletCanvas html = pool.acquire(new MockHttpRequest(), new MockHttpResponse(), previous);
+        ChunkedWriter chunked = html.useChunkedOutput(16);
+        pool.release(html);
+        chunked.write("late");
+        try {
+            chunked.flush();
+            fail("flushed to the writer of a released canvas");
+        } catch (IllegalStateException ex) {
+        }
+        assertEquals("", previous.toString());
+
+        StringWriter out = new StringWriter();
+        HtmlServletCanvas reused = pool.acquire(new MockHttpRequest(), new MockHttpResponse(), out);
+        assertSame(chunked, reused.useChunkedOutput(16));
+        reused.p()._p();
+        chunked.finish();
+        assertEquals("<p></p>", out.toString());
+    }
+
+    public void testReleaseTwice() {
+        HtmlServletCanvas html = pool.acquire(new MockHttpRequest(), new MockHttpResponse(), new StringWriter());
+        pool.release(html);
+        pool.release(html);
+        assertEquals(1, pool.size());
+        assertSame(html, pool.acquire(null, null, new StringWriter()));
+        assertNotSame(html, pool.acquire(null, null, new StringWriter()));
+    }
+
+    public void testReleaseWhenAsyncCompleted() {
+        MockHttpRequest request = new MockHttpRequest();
+        HtmlServletCanvas html = pool.acquire(request, new MockHttpResponse(), new StringWriter());
+        request.startAsync();
+        pool.releaseWhenDone(html);
+        assertEquals(0, pool.size());
+        request.asyncContext.complete();
+        assertEquals(1, pool.size());
+    }
+
+    public void testFactoryPooling() throws IOException {
+        HtmlCanvasFactory.POOLING_ENABLED = true;
+        try {
+            MockHttpRequest request = new MockHttpRequest();
+            HtmlCanvas first = HtmlCanvasFactory.createStreamingCanvas(request, new MockHttpResponse(), new StringWriter());
+            Object chunked = first.getOutputWriter();
+            HtmlCanvasFactory.finish(first);
+            HtmlCanvas second = HtmlCanvasFactory.createStreamingCanvas(request, new MockHttpResponse(), new StringWriter());
+            assertSame(first, second);
+            assertSame(chunked, second.getOutputWriter());
+            HtmlCanvasFactory.finish(second);
+
+            request.parameters.put(HtmlCanvasFactory.INSPECT_QUERY_PARAM, "true");
+            HtmlCanvas debug = HtmlCanvasFactory.createCanvas(request, new MockHttpResponse(), new StringWriter());
+            assertNotSame(first, debug);
+            HtmlCanvasFactory.release(debug);
+            assertNotSame(debug, HtmlCanvasFactory.createCanvas(request, new MockHttpResponse(), new StringWriter()));
+        } finally {
+            HtmlCanvasFactory.POOLING_ENABLED = false;
+        }
+    }
+}
@@ -7,6 +7,7 @@ import junit.framework.Assert;
 import junit.framework.TestCase;
 
 import org.rendersnake.HtmlCanvas;
+import org.rendersnake.StreamingAttributes;
 import org.rendersnake.error.RenderException;
 
 public class HtmlCanvasTest extends TestCase {
@@ -159,4 +160,43 @@ public class HtmlCanvasTest extends TestCase {
         html.write("hello");
         assertEquals(out.toString(), "hello");
     }
-}
\ No newline at end of file
+
+    public void testReusedAttributes() throws Exception {
+        html.div(html.attrs().id("one").class_("a & b"))
+            .span(html.attrs().id("two").value(3))._span()
+            ._div();
+        assertEquals("<div id=\"one\" class=\"a &amp; b\"><span id=\"two\" value=3></span></div>", html.toHtml());
+        assertSame(html.attrs(), html.attrs());
+    }
+    public void testReusedAttributesClearedOnAcquire() throws Exception {
+        html.attrs().id("unused");
+        html.p(html.attrs().id("used"))._p();
+        assertEquals("<p id=\"used\"></p>", html.toHtml());
+    }
+    public void testStreamingAttributes() throws Exception {
+        html.open("div").id("one").class_("a & \"b\"").value(3);
+        html.write("text");
+        html.open("span").id("two");
+        html._span()._div();
+        assertEquals("<div id=\"one\" class=\"a &amp; &quot;b&quot;\" value=3>text<span id=\"two\"></span></div>", html.toHtml());
+    }
+    public void testStreamingAttributesNested() throws Exception {
+        html.open("ul").class_("list");
+        html.li()._li().close();
+        assertEquals("<ul class=\"list\"><li></li></ul>", html.toHtml());
+    }
+    public void testStreamingAttributesAfterContent() throws Exception {
+        StreamingAttributes attrs = html.open("p");
+        attrs.canvas().write("text");
+        try {
+            attrs.id("late");
+            fail("attribute after content");
+        } catch (IllegalStateException ex) {
+            // got it
+        }
+    }
+    public void testUnicodePassesThrough() throws Exception {
+        html.write("Ελληνικά & русский <日本語>");
+        assertEquals("Ελληνικά &amp; русский &lt;日本語&gt;", html.toHtml());
+    }
+}
@@ -0,0 +1,59 @@
+package org.rendersnake.test;
+
+import java.io.StringWriter;
+
+import junit.framework.TestCase;
+
+import org.rendersnake.internal.HtmlEscaper;
+import org.rendersnake.internal.StringEscapeUtils;
+import org.rendersnake.internal.WriteBuffer;
+
+public class HtmlEscaperTest extends TestCase {
+
+    private String escape(String text) throws Exception {
+        StringWriter out = new StringWriter();
+        HtmlEscaper.INSTANCE.escapeHtml(out, text);
+        return out.toString();
+    }
+    public void testClean() throws Exception {
+        assertEquals("no need to escape", escape("no need to escape"));
+        assertTrue(HtmlEscaper.isClean("Crème brûlée 日本語"));
+    }
+    public void testAllSpecials() throws Exception {
+        assertEquals("&amp;&lt;&gt;&quot;&#39;", escape("&<>\"'"));
+    }
+    public void testUnicodeUntouched() throws Exception {
+        assertEquals("Tom &amp; Jérôme € 😀", escape("Tom & Jérôme € 😀"));
+    }
+    public void testRuns() throws Exception {
+        assertEquals("a&lt;b&gt;c", escape("a<b>c"));
+        assertEquals("&lt;start and end&gt;", escape("<start and end>"));
+    }
+    public void testPart() throws Exception {
+        StringWriter out = new StringWriter();
+        HtmlEscaper.escape(out, "xx<a>yy", 2, 3);
+        assertEquals("&lt;a&gt;", out.toString());
+    }
+    public void testIntoArray() throws Exception {
+        char[] into = new char[32];
+        int n = HtmlEscaper.escape("1<2", into, 1);
+        assertEquals("1&lt;2", new String(into, 1, n - 1));
+    }
+    public void testWriteBuffer() throws Exception {
+        WriteBuffer buffer = new WriteBuffer(4);
+        buffer.appendEscaped("a \"quoted\" value");
+        buffer.write("-xyz-", 1, 3);
+        assertEquals("a &quot;quoted&quot; valuexyz", buffer.toString());
+    }
+    public void testEscapedLength() throws Exception {
+        assertEquals(4, HtmlEscaper.escapedLength("none"));
+        assertEquals("&amp;&lt;&gt;&quot;&#39;".length(), HtmlEscaper.escapedLength("&<>\"'"));
+        char[] into = new char[HtmlEscaper.escapedLength("a<b")];
+        assertEquals(into.length, HtmlEscaper.escape("a<b", into, 0));
+    }
+    public void testCharacterReferences() throws Exception {
+        StringWriter out = new StringWriter();
+        StringEscapeUtils.escapeISOCharacters(out, "a\tb\u00e9\uffff");
+        assertEquals("a&#9;b&#233;&#65535;", out.toString());
+    }
+}
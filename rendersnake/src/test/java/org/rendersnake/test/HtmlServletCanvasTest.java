@@ -1,10 +1,15 @@
 package org.rendersnake.test;
 
+import java.io.IOException;
 import java.io.StringWriter;
 
 import junit.framework.TestCase;
 
+import org.rendersnake.PageContext;
+import org.rendersnake.RequestUtils;
 import org.rendersnake.ext.servlet.HtmlServletCanvas;
+import org.rendersnake.ext.servlet.ServletUtils;
+import org.rendersnake.ext.spring.HtmlCanvasFactory;
 
 public class HtmlServletCanvasTest extends TestCase {
     public void testCreateWithReqResp() {
@@ -14,4 +19,49 @@ public class HtmlServletCanvasTest extends TestCase {
         assertNotNull(html.toHtml());
         assertTrue(html.toHtml().length() == 0);
     }
+    public void testFlushAfterHead() throws IOException {
+        StringWriter target = new StringWriter();
+        HtmlServletCanvas html = (HtmlServletCanvas) HtmlCanvasFactory.createStreamingCanvas(new MockHttpRequest(), new MockHttpResponse(), target);
+        assertTrue(html.flushAfterHead);
+        html.html().head()._head();
+        assertEquals("<html><head></head>", target.toString());
+        html.body()._body()._html();
+        assertEquals("<html><head></head>", target.toString());
+        HtmlCanvasFactory.finish(html);
+        assertEquals("<html><head></head><body></body></html>", target.toString());
+    }
+    public void testFinishWhileTagIsPending() throws IOException {
+        StringWriter target = new StringWriter();
+        HtmlServletCanvas html = (HtmlServletCanvas) HtmlCanvasFactory.createStreamingCanvas(new MockHttpRequest(), new MockHttpResponse(), target);
+        html.body().write("text").open("p").id("x");
+        HtmlCanvasFactory.finishOutput(html);
+        assertTrue(html.getChunkedWriter().getTotalNanos() != -1);
+        assertTrue(target.toString().startsWith("<body>text<p"));
+    }
+    public void testResetStopsChunkedOutput() throws IOException {
+        HtmlServletCanvas html = (HtmlServletCanvas) HtmlCanvasFactory.createStreamingCanvas(new MockHttpRequest(), new MockHttpResponse(), new StringWriter());
+        assertNotNull(html.getChunkedWriter());
+        html.reset(new MockHttpRequest(), new MockHttpResponse(), new StringWriter());
+        assertNull(html.getChunkedWriter());
+    }
+    public void testSetupPageContextIsLazy() {
+        final int[] calls = new int[1];
+        MockHttpRequest request = new MockHttpRequest() {
+            public String getQueryString() {
+                calls[0]++;
+                return "q=1";
+            }
+            public String getRequestURI() {
+                return "/page";
+            }
+        };
+        request.parameters.put("name", "value");
+        HtmlServletCanvas html = new HtmlServletCanvas(request, new MockHttpResponse(), new StringWriter());
+        ServletUtils.setupPageContext(request, html.getPageContext());
+        assertEquals(0, calls[0]);
+        assertEquals("value", RequestUtils.getParameter(html, "name"));
+        assertEquals("/page?q=1", RequestUtils.getRequestURLAndQuery(html));
+        assertEquals("/page?q=1", html.getPageContext().getString(PageContext.REQUEST_URIQ));
+        assertEquals(1, calls[0]);
+    }
 }
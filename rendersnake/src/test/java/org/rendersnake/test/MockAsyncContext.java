@@ -0,0 +1,96 @@
+package org.rendersnake.test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+public class MockAsyncContext implements AsyncContext {
+
+    public final ServletRequest request;
+    public final ServletResponse response;
+    public final List<AsyncListener> listeners = new ArrayList<AsyncListener>();
+    public boolean completed = false;
+    public long timeout = 0;
+    /**
+     * Set once the container thread returned from the dispatch that started the asynchronous request.
+     */
+    public boolean dispatchReturned = false;
+
+    public MockAsyncContext(ServletRequest request, ServletResponse response) {
+        this.request = request;
+        this.response = response;
+    }
+
+    public ServletRequest getRequest() {
+        return request;
+    }
+
+    public ServletResponse getResponse() {
+        return response;
+    }
+
+    public boolean hasOriginalRequestAndResponse() {
+        return true;
+    }
+
+    public void dispatch() {
+        // TODO Auto-generated method stub
+    }
+
+    public void dispatch(String path) {
+        // TODO Auto-generated method stub
+    }
+
+    public void dispatch(ServletContext context, String path) {
+        // TODO Auto-generated method stub
+    }
+
+    public void complete() {
+        completed = true;
+        for (AsyncListener each : listeners) {
+            try {
+                each.onComplete(new AsyncEvent(this));
+            } catch (java.io.IOException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+    }
+
+    public void start(Runnable run) {
+        new Thread(run).start();
+    }
+
+    public void addListener(AsyncListener listener) {
+        // as specified by Servlet 3.1
+        if (dispatchReturned)
+            throw new IllegalStateException("addListener after the container dispatch returned");
+        listeners.add(listener);
+    }
+
+    public void addListener(AsyncListener listener, ServletRequest servletRequest, ServletResponse servletResponse) {
+        this.addListener(listener);
+    }
+
+    public <T extends AsyncListener> T createListener(Class<T> clazz) throws ServletException {
+        try {
+            return clazz.newInstance();
+        } catch (Exception ex) {
+            throw new ServletException(ex);
+        }
+    }
+
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+}
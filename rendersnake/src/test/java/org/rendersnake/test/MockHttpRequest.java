@@ -4,20 +4,33 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.security.Principal;
+import java.util.Collection;
 import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.Locale;
 import java.util.Map;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.DispatcherType;
 import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
 import javax.servlet.ServletInputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpUpgradeHandler;
+import javax.servlet.http.Part;
 
 public class MockHttpRequest implements HttpServletRequest {
 
     public String pathInfo = "";
+    public String method = "GET";
+    public boolean asyncSupported = false;
+    public MockAsyncContext asyncContext;
     public Hashtable<String,String> parameters = new Hashtable<String,String>();
     
     public Object getAttribute(String name) {
@@ -206,8 +219,7 @@ public class MockHttpRequest implements HttpServletRequest {
     }
 
     public String getMethod() {
-        // TODO Auto-generated method stub
-        return null;
+        return method;
     }
 
     public String getPathInfo() {
@@ -295,4 +307,75 @@ public class MockHttpRequest implements HttpServletRequest {
         return false;
     }
 
+    // Servlet 3.x
+
+    public ServletContext getServletContext() {
+        // TODO Auto-generated method stub
+        return null;
+    }
+
+    public AsyncContext startAsync() throws IllegalStateException {
+        return this.startAsync(this, null);
+    }
+
+    public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse) throws IllegalStateException {
+        asyncContext = new MockAsyncContext(servletRequest, servletResponse);
+        return asyncContext;
+    }
+
+    public boolean isAsyncStarted() {
+        return asyncContext != null;
+    }
+
+    public boolean isAsyncSupported() {
+        return asyncSupported;
+    }
+
+    public AsyncContext getAsyncContext() {
+        return asyncContext;
+    }
+
+    public DispatcherType getDispatcherType() {
+        return DispatcherType.REQUEST;
+    }
+
+    public boolean authenticate(HttpServletResponse response) throws IOException, ServletException {
+        // TODO Auto-generated method stub
+        return false;
+    }
+
+    public void login(String username, String password) throws ServletException {
+        // TODO Auto-generated method stub
+
+    }
+
+    public void logout() throws ServletException {
+        // TODO Auto-generated method stub
+
+    }
+
+    public Collection<Part> getParts() throws IOException, ServletException {
+        // TODO Auto-generated method stub
+        return null;
+    }
+
+    public Part getPart(String name) throws IOException, ServletException {
+        // TODO Auto-generated method stub
+        return null;
+    }
+
+    public String changeSessionId() {
+        // TODO Auto-generated method stub
+        return null;
+    }
+
+    public <T extends HttpUpgradeHandler> T upgrade(Class<T> handlerClass) throws IOException, ServletException {
+        // TODO Auto-generated method stub
+        return null;
+    }
+
+    public long getContentLengthLong() {
+        // TODO Auto-generated method stub
+        return 0;
+    }
 }
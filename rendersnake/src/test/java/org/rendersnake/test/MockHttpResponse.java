@@ -1,7 +1,9 @@
 package org.rendersnake.test;
 
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.util.Collection;
 import java.util.Locale;
 
 import javax.servlet.ServletOutputStream;
@@ -10,9 +12,13 @@ import javax.servlet.http.HttpServletResponse;
 
 public class MockHttpResponse implements HttpServletResponse {
 
+    public MockServletOutputStream outputStream = new MockServletOutputStream();
+    public String characterEncoding;
+    public int status = 200;
+    private PrintWriter writer;
+
     public String getCharacterEncoding() {
-        // TODO Auto-generated method stub
-        return null;
+        return characterEncoding;
     }
 
     public String getContentType() {
@@ -21,18 +27,17 @@ public class MockHttpResponse implements HttpServletResponse {
     }
 
     public ServletOutputStream getOutputStream() throws IOException {
-        // TODO Auto-generated method stub
-        return null;
+        return outputStream;
     }
 
     public PrintWriter getWriter() throws IOException {
-        // TODO Auto-generated method stub
-        return null;
+        if (writer == null)
+            writer = new PrintWriter(new OutputStreamWriter(outputStream, "UTF-8"));
+        return writer;
     }
 
     public void setCharacterEncoding(String charset) {
-        // TODO Auto-generated method stub
-
+        characterEncoding = charset;
     }
 
     public void setContentLength(int len) {
@@ -161,13 +166,37 @@ public class MockHttpResponse implements HttpServletResponse {
     }
 
     public void setStatus(int sc) {
+        status = sc;
+    }
+
+    public void setStatus(int sc, String sm) {
         // TODO Auto-generated method stub
 
     }
 
-    public void setStatus(int sc, String sm) {
+    // Servlet 3.x
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getHeader(String name) {
         // TODO Auto-generated method stub
+        return null;
+    }
 
+    public Collection<String> getHeaders(String name) {
+        // TODO Auto-generated method stub
+        return null;
     }
 
+    public Collection<String> getHeaderNames() {
+        // TODO Auto-generated method stub
+        return null;
+    }
+
+    public void setContentLengthLong(long len) {
+        // TODO Auto-generated method stub
+
+    }
 }
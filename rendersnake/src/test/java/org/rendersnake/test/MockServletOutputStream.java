@@ -0,0 +1,56 @@
+package org.rendersnake.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+
+public class MockServletOutputStream extends ServletOutputStream {
+
+    public final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    public WriteListener listener;
+    public boolean ready = true;
+    public int writeCount = 0;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void setWriteListener(WriteListener writeListener) {
+        listener = writeListener;
+        try {
+            listener.onWritePossible();
+        } catch (IOException ex) {
+            listener.onError(ex);
+        }
+    }
+
+    /**
+     * Make the stream ready again as a container would do when the client has read the data.
+     */
+    public void becomeReady() throws IOException {
+        ready = true;
+        listener.onWritePossible();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        bytes.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        bytes.write(b, off, len);
+        writeCount++;
+    }
+
+    @Override
+    public String toString() {
+        try {
+            return bytes.toString("UTF-8");
+        } catch (java.io.UnsupportedEncodingException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.rendersnake.test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+
+import org.rendersnake.PageContext;
+import org.rendersnake.internal.StackedMap;
+import org.rendersnake.tools.LoggingPageContext;
+
+public class PageContextForkTest extends TestCase {
+
+    public void testForkSeesParentValues() {
+        PageContext parent = new PageContext();
+        parent.withString("title", "Home").withInteger("count", 3);
+        PageContext fork = parent.fork();
+        assertEquals("Home", fork.getString("title"));
+        assertEquals(3, fork.getInt("count", 0));
+        assertEquals(parent.getDepth(), fork.getDepth());
+    }
+
+    public void testForkDoesNotLeak() {
+        PageContext parent = new PageContext();
+        parent.withString("title", "Home");
+        PageContext fork = parent.fork();
+        fork.withString("title", "Region");
+        fork.withString("local", "value");
+        assertEquals("Home", parent.getString("title"));
+        assertNull(parent.getString("local"));
+        parent.withString("title", "Changed");
+        parent.clear("other");
+        assertEquals("Region", fork.getString("title"));
+    }
+
+    public void testParentPopAfterFork() {
+        StackedMap parent = new StackedMap();
+        parent.put("key", "v1");
+        parent.push();
+        parent.put("key", "v2");
+        StackedMap fork = parent.fork();
+        parent.pop();
+        parent.put("key", "v3");
+        assertEquals("v2", fork.get("key"));
+        fork.pop();
+        assertEquals("v1", fork.get("key"));
+        assertEquals("v3", parent.get("key"));
+    }
+
+    public void testForkOfFork() {
+        StackedMap parent = new StackedMap();
+        parent.put("key", "v1");
+        StackedMap first = parent.fork();
+        StackedMap second = first.fork();
+        first.put("key", "first");
+        second.remove("key");
+        assertEquals("v1", parent.get("key"));
+        assertEquals("first", first.get("key"));
+        assertNull(second.get("key"));
+    }
+
+    public void testForkKeepsKind() {
+        assertTrue(new LoggingPageContext().fork() instanceof LoggingPageContext);
+    }
+
+    public void testReadOnOtherThread() throws Exception {
+        PageContext parent = new PageContext();
+        for (int i = 0; i < 100; i++) {
+            parent.withInteger("key" + i, i);
+        }
+        final PageContext fork = parent.fork();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> sum = executor.submit(new Callable<Integer>() {
+                public Integer call() {
+                    int sum = 0;
+                    for (int i = 0; i < 100; i++) {
+                        sum += fork.getInt("key" + i, 0);
+                    }
+                    return sum;
+                }
+            });
+            // the parent copies on write
+            for (int i = 0; i < 100; i++) {
+                parent.withInteger("key" + i, -1);
+            }
+            assertEquals(Integer.valueOf(4950), sum.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -1,12 +1,16 @@
 package org.rendersnake.test;
 
+import java.io.IOException;
 import java.util.Calendar;
 import java.util.Date;
 
 import junit.framework.TestCase;
 
+import org.rendersnake.ContextKey;
 import org.rendersnake.HtmlCanvas;
+import org.rendersnake.LazyValue;
 import org.rendersnake.PageContext;
+import org.rendersnake.Renderable;
 import org.rendersnake.internal.ContextMap;
 import org.rendersnake.internal.SimpleContextMap;
 import org.rendersnake.tools.Inspector;
@@ -115,4 +119,115 @@ public class PageContextTest extends TestCase {
         // TODO cannot use cascading anymore, fix it
         map.withBoolean("b", true);
     }
+    public void testDepthOfNestedComponents() throws Exception {
+        HtmlCanvas html = new HtmlCanvas();
+        final int top = html.getPageContext().getDepth();
+        final int[] depths = new int[2];
+        html.render(new Renderable() {
+            public void renderOn(HtmlCanvas html) throws IOException {
+                depths[0] = html.getPageContext().getDepth();
+                html.render(new Renderable() {
+                    public void renderOn(HtmlCanvas html) throws IOException {
+                        html.getPageContext().withString("inner", "value");
+                        depths[1] = html.getPageContext().getDepth();
+                    }
+                });
+                assertNull(html.getPageContext().getString("inner"));
+            }
+        });
+        assertEquals(top + 1, depths[0]);
+        assertEquals(top + 2, depths[1]);
+        assertEquals(top, html.getPageContext().getDepth());
+    }
+    public void testPrimitives() {
+        ctx.withInteger("count", 7).withLong("total", 1L << 40).withFloat("price", 9.95f).withBoolean("flag", true);
+        assertEquals(7, ctx.getInt("count", 0));
+        assertEquals(1L << 40, ctx.getLongValue("total", 0L));
+        assertEquals(9.95f, ctx.getFloatValue("price", 0f));
+        assertTrue(ctx.getBooleanValue("flag", false));
+        // boxed on request
+        assertEquals(Integer.valueOf(7), ctx.getInteger("count"));
+        assertEquals(Long.valueOf(1L << 40), ctx.getObject("total"));
+        assertEquals(Float.valueOf(9.95f), ctx.toMap().get("price"));
+    }
+    public void testPrimitiveDefaults() {
+        ctx.withString("empty", "");
+        ctx.withString("size", "12");
+        ctx.withObject("other", new Object());
+        assertEquals(3, ctx.getInt("missing", 3));
+        assertEquals(3, ctx.getInt("empty", 3));
+        assertEquals(3, ctx.getInt("other", 3));
+        assertEquals(12, ctx.getInt("size", 3));
+        ctx.withInteger("boxed", Integer.valueOf(4));
+        assertEquals(4, ctx.getInt("boxed", 3));
+    }
+    public void testBoxedGettersWithPrimitiveArgument() {
+        ctx.withObject("other", new Object());
+        ctx.withString("size", "12");
+        // the boxed getters still answer null for another type
+        assertNull(ctx.getLong("other", 5L));
+        assertNull(ctx.getFloat("other", 5f));
+        assertNull(ctx.getBoolean("other", true));
+        assertEquals(Long.valueOf(12), ctx.getLong("size", 5L));
+        assertEquals(5L, ctx.getLongValue("other", 5L));
+    }
+    public void testPrimitiveScoped() {
+        ctx.withInteger("count", 1);
+        ctx.attributes.push();
+        ctx.withInteger("count", 2);
+        assertEquals(2, ctx.getInt("count", 0));
+        ctx.attributes.pop();
+        assertEquals(1, ctx.getInt("count", 0));
+        ctx.withString("count", "3");
+        assertEquals(3, ctx.getInt("count", 0));
+    }
+    public void testSimpleContextMapPrimitives() {
+        SimpleContextMap map = new SimpleContextMap();
+        map.withInteger("count", 7).withLong("total", 8L).withFloat("price", 1.5f).withBoolean("flag", true);
+        assertEquals(7, map.getInt("count", 0));
+        assertEquals(8L, map.getLongValue("total", 0L));
+        assertEquals(1.5f, map.getFloatValue("price", 0f));
+        assertTrue(map.getBooleanValue("flag", false));
+        assertEquals(Integer.valueOf(7), map.getInteger("count"));
+        assertEquals(Long.valueOf(8L), map.toMap().get("total"));
+        map.withInteger("count", 8);
+        assertEquals(8, map.getInt("count", 0));
+        assertEquals(Integer.valueOf(8), map.clear("count"));
+        assertEquals(-1, map.getInt("count", -1));
+    }
+    static class Counting extends LazyValue<Integer> {
+        int calls = 0;
+        protected Integer compute() {
+            calls++;
+            return 42;
+        }
+    }
+    public void testLazyValue() {
+        Counting lazy = new Counting();
+        ctx.withLazy("answer", lazy);
+        assertEquals(0, lazy.calls);
+        assertEquals(Integer.valueOf(42), ctx.getInteger("answer"));
+        assertEquals(42, ctx.getInt("answer", 0));
+        assertEquals(Integer.valueOf(42), ctx.get(ContextKey.ofInteger("answer")));
+        assertEquals(Integer.valueOf(42), ctx.toMap().get("answer"));
+        assertEquals(1, lazy.calls);
+    }
+    public void testLazyValueShadowed() {
+        Counting lazy = new Counting();
+        ctx.withLazy("answer", lazy);
+        ctx.attributes.push();
+        ctx.withInteger("answer", 7);
+        assertEquals(7, ctx.getInt("answer", 0));
+        ctx.attributes.pop();
+        assertEquals(0, lazy.calls);
+        assertEquals("42", ctx.get(ContextKey.ofString("answer")));
+    }
+    public void testLazyValueSharedByFork() {
+        Counting lazy = new Counting();
+        ctx.withLazy("answer", lazy);
+        PageContext fork = ctx.fork();
+        assertEquals(Integer.valueOf(42), fork.getInteger("answer"));
+        assertEquals(Integer.valueOf(42), ctx.getInteger("answer"));
+        assertEquals(1, lazy.calls);
+    }
 }
@@ -0,0 +1,119 @@
+package org.rendersnake.test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.rendersnake.HtmlCanvas;
+import org.rendersnake.LazyValue;
+import org.rendersnake.ParallelRegion;
+import org.rendersnake.Renderable;
+
+public class ParallelRegionTest extends TestCase {
+
+    static class Widget implements Renderable {
+        final String name;
+        final CountDownLatch waitFor;
+        final CountDownLatch done = new CountDownLatch(1);
+        Widget(String name, CountDownLatch waitFor) {
+            this.name = name;
+            this.waitFor = waitFor;
+        }
+        public void renderOn(HtmlCanvas html) throws IOException {
+            try {
+                if (waitFor != null && !waitFor.await(5, TimeUnit.SECONDS))
+                    throw new IOException("timeout");
+            } catch (InterruptedException ex) {
+                throw new IOException(ex.getMessage());
+            }
+            html.div().content(name + html.getPageContext().getString("title", "?"));
+            done.countDown();
+        }
+    }
+
+    public void testOutputInDeclarationOrder() throws IOException {
+        Widget last = new Widget("c", null);
+        Widget middle = new Widget("b", last.done);
+        Widget first = new Widget("a", middle.done);
+        HtmlCanvas html = new HtmlCanvas();
+        html.getPageContext().withString("title", "!");
+        html.renderParallel(first, middle, last);
+        assertEquals("<div>a!</div><div>b!</div><div>c!</div>", html.toHtml());
+    }
+
+    public void testWithoutPageContext() throws IOException {
+        HtmlCanvas html = new HtmlCanvas();
+        html.renderParallel(new Widget("a", null), null, new Widget("b", null));
+        assertEquals("<div>a?</div><div>b?</div>", html.toHtml());
+    }
+
+    public void testRegionsDoNotLeak() throws IOException {
+        HtmlCanvas html = new HtmlCanvas();
+        html.getPageContext().withString("title", "page");
+        Renderable writer = new Renderable() {
+            public void renderOn(HtmlCanvas html) throws IOException {
+                html.getPageContext().withString("title", "region");
+                html.getPageContext().withString("leak", "region");
+                html.write(html.getPageContext().getString("title"));
+            }
+        };
+        html.renderParallel(writer, writer);
+        assertEquals("regionregion", html.toHtml());
+        assertEquals("page", html.getPageContext().getString("title"));
+        assertNull(html.getPageContext().getString("leak"));
+    }
+
+    public void testLazyValueComputedOnCallingThread() throws IOException {
+        HtmlCanvas html = new HtmlCanvas();
+        // stands for a value read from the request
+        html.getPageContext().withLazy("title", new LazyValue<String>() {
+            protected String compute() {
+                return Thread.currentThread().getName();
+            }
+        });
+        html.renderParallel(new Widget("a", null), new Widget("b", null));
+        String caller = Thread.currentThread().getName();
+        assertEquals("<div>a" + caller + "</div><div>b" + caller + "</div>", html.toHtml());
+    }
+
+    public void testExceptionOfRegion() {
+        HtmlCanvas html = new HtmlCanvas();
+        Renderable failing = new Renderable() {
+            public void renderOn(HtmlCanvas html) throws IOException {
+                throw new IOException("backend down");
+            }
+        };
+        try {
+            html.renderParallel(new Widget("a", null), failing);
+            fail("should raise exception");
+        } catch (IOException ex) {
+            assertEquals("backend down", ex.getMessage());
+        }
+    }
+
+    public void testNestedRegionOnBoundedExecutor() throws IOException {
+        ExecutorService previous = ParallelRegion.getExecutor();
+        ExecutorService single = Executors.newFixedThreadPool(1);
+        ParallelRegion.setExecutor(single);
+        try {
+            Renderable nested = new ParallelRegion(new Widget("b", null), new Widget("c", null));
+            HtmlCanvas html = new HtmlCanvas();
+            html.renderParallel(new Widget("a", null), nested);
+            assertEquals("<div>a?</div><div>b?</div><div>c?</div>", html.toHtml());
+        } finally {
+            ParallelRegion.setExecutor(previous);
+            single.shutdownNow();
+        }
+    }
+
+    public void testEmpty() throws IOException {
+        HtmlCanvas html = new HtmlCanvas();
+        new ParallelRegion().renderOn(html);
+        assertEquals("", html.toHtml());
+        assertNotNull(ParallelRegion.getExecutor());
+    }
+}
@@ -0,0 +1,40 @@
+package org.rendersnake.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.Charset;
+
+import junit.framework.TestCase;
+
+import org.rendersnake.internal.ResourceReader;
+
+public class ResourceReaderTest extends TestCase {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private String sample(int size) {
+        StringBuilder sb = new StringBuilder(size);
+        while (sb.length() < size) sb.append("<p>Grüße</p>\n");
+        return sb.toString();
+    }
+    public void testStreamWithoutSizeHint() throws Exception {
+        String text = sample(20000);
+        assertEquals(text, ResourceReader.read(new ByteArrayInputStream(text.getBytes(UTF8)), -1, UTF8));
+    }
+    public void testStreamWithExactSizeHint() throws Exception {
+        byte[] bytes = sample(100).getBytes(UTF8);
+        assertEquals(sample(100), ResourceReader.read(new ByteArrayInputStream(bytes), bytes.length, UTF8));
+    }
+    public void testMappedFile() throws Exception {
+        String text = sample(5000) + "no terminator";
+        File file = File.createTempFile("ResourceReaderTest", ".html");
+        try {
+            FileOutputStream out = new FileOutputStream(file);
+            out.write(text.getBytes(UTF8));
+            out.close();
+            assertEquals(text, ResourceReader.read(file.toURI().toURL(), UTF8));
+        } finally {
+            file.delete();
+        }
+    }
+}
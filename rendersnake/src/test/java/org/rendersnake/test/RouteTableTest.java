@@ -0,0 +1,78 @@
+package org.rendersnake.test;
+
+import junit.framework.TestCase;
+
+import org.rendersnake.ext.servlet.PathParameters;
+import org.rendersnake.ext.servlet.RouteTable;
+
+public class RouteTableTest extends TestCase {
+
+    RouteTable<String> table = new RouteTable<String>();
+
+    @Override
+    protected void setUp() throws Exception {
+        table.add("/", "root");
+        table.add("/home", "home");
+        table.add("/users/{id}", "user");
+        table.add("/users/{id}/edit", "edit");
+        table.add("/users/new", "new");
+        table.add("/users/{id}/posts/{post}", "post");
+        table.add("/files/*", "files");
+        table.add("/trailing/", "trailing");
+    }
+
+    public void testLiteral() {
+        assertEquals("root", table.match("/").getTarget());
+        assertEquals("root", table.match("").getTarget());
+        assertEquals("root", table.match(null).getTarget());
+        assertEquals("home", table.match("/home").getTarget());
+        assertSame(PathParameters.EMPTY, table.match("/home").getParameters());
+        assertSame(table.match("/home"), table.match("/home"));
+        assertNull(table.match("/away"));
+        assertNull(table.match("/home/more"));
+    }
+
+    public void testParameters() {
+        RouteTable.Match<String> match = table.match("/users/42/posts/7");
+        assertEquals("post", match.getTarget());
+        assertEquals("/users/{id}/posts/{post}", match.getPattern());
+        assertEquals("42", match.getParameters().getString("id"));
+        assertEquals(Integer.valueOf(7), match.getParameters().getInteger("post"));
+        assertNull(match.getParameters().getString("missing"));
+        assertEquals("edit", table.match("/users/42/edit").getTarget());
+        assertNull(table.match("/users//edit"));
+    }
+
+    public void testLiteralBeforeParameter() {
+        assertEquals("new", table.match("/users/new").getTarget());
+        assertEquals("edit", table.match("/users/new/edit").getTarget());
+        assertEquals("new", table.match("/users/new/edit").getParameters().getString("id"));
+    }
+
+    public void testWildcard() {
+        assertEquals("a/b.css", table.match("/files/a/b.css").getParameters().getString(RouteTable.WILDCARD));
+        assertEquals("", table.match("/files").getParameters().getString(RouteTable.WILDCARD));
+        assertEquals("files", table.match("/files/").getTarget());
+    }
+
+    public void testTrailingSlash() {
+        assertEquals("trailing", table.match("/trailing/").getTarget());
+        assertNull(table.match("/trailing"));
+    }
+
+    public void testReplace() {
+        assertEquals(8, table.size());
+        assertEquals("user", table.add("/users/{name}", "other"));
+        assertEquals("bob", table.match("/users/bob").getParameters().getString("name"));
+        assertEquals(8, table.size());
+    }
+
+    public void testWildcardNotLast() {
+        try {
+            table.add("/a/*/b", "bad");
+            fail("should fail");
+        } catch (IllegalArgumentException ex) {
+            // as expected
+        }
+    }
+}
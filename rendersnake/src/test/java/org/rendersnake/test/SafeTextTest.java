@@ -0,0 +1,61 @@
+package org.rendersnake.test;
+
+import junit.framework.TestCase;
+
+import org.rendersnake.HtmlAttributes;
+import org.rendersnake.HtmlCanvas;
+import org.rendersnake.SafeText;
+import org.rendersnake.internal.CachingHtmlEscapeHandler;
+import org.rendersnake.internal.HtmlEscapeHandler;
+
+public class SafeTextTest extends TestCase {
+
+    public void testEscapedOnce() throws Exception {
+        SafeText label = SafeText.escaped("Save & close");
+        HtmlCanvas html = new HtmlCanvas();
+        html.button(html.attrs().add("title", label)).write(label)._button();
+        assertEquals("<button title=\"Save &amp; close\">Save &amp; close</button>", html.toHtml());
+    }
+    public void testTrusted() throws Exception {
+        HtmlCanvas html = new HtmlCanvas();
+        html.write(SafeText.trusted("<b>bold</b>"));
+        assertEquals("<b>bold</b>", html.toHtml());
+    }
+    public void testCachingHandler() throws Exception {
+        CachingHtmlEscapeHandler cache = new CachingHtmlEscapeHandler(16);
+        String clean = "a label without specials";
+        String dirty = "Tom & Jerry <show>";
+        assertSame(clean, cache.escaped(clean));
+        assertEquals("Tom &amp; Jerry &lt;show&gt;", cache.escaped(dirty));
+        // remembered on the second sighting
+        String escaped = cache.escaped(dirty);
+        assertEquals("Tom &amp; Jerry &lt;show&gt;", escaped);
+        assertSame(escaped, cache.escaped(dirty));
+        // equal but not identical is a miss, with the same result
+        assertEquals(escaped, cache.escaped(new String(dirty)));
+    }
+    public void testCachingHandlerSkipsLongText() throws Exception {
+        CachingHtmlEscapeHandler cache = new CachingHtmlEscapeHandler(16);
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() <= CachingHtmlEscapeHandler.MAX_CACHED_LENGTH)
+            builder.append("a & b ");
+        String dirty = builder.toString();
+        String escaped = cache.escaped(dirty);
+        assertNotSame(escaped, cache.escaped(dirty));
+        assertEquals(escaped, cache.escaped(dirty));
+    }
+    public void testInstall() throws Exception {
+        HtmlEscapeHandler previous = HtmlCanvas.HTML_ESCAPE_HANDLER;
+        try {
+            CachingHtmlEscapeHandler.install(64);
+            HtmlCanvas html = new HtmlCanvas();
+            html.p(html.attrs().title("Tom & Jerry's")).write("Tom & Jerry's").write("<")._p();
+            html.open("span").title("\"quoted\" title");
+            html._span();
+            assertEquals("<p title=\"Tom &amp; Jerry&#39;s\">Tom &amp; Jerry&#39;s&lt;</p><span title=\"&quot;quoted&quot; title\"></span>", html.toHtml());
+        } finally {
+            HtmlCanvas.HTML_ESCAPE_HANDLER = previous;
+            HtmlAttributes.ESCAPE_CACHE = null;
+        }
+    }
+}
@@ -1,5 +1,6 @@
  package org.rendersnake.test;
 
+import java.lang.reflect.Field;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
@@ -330,4 +331,100 @@ public class StackedMapTest extends TestCase {
         map.push();
         assertFalse(map.containsKey("two"));
     }
+
+    public void testManyKeysAndLevels() {
+        for (int d = 0; d < 40; d++) {
+            map.push();
+            for (int k = 0; k < 10; k++) {
+                map.put("key" + k, d * 100 + k);
+                map.put("level" + d + "key" + k, d);
+            }
+        }
+        assertEquals(41, map.getDepth());
+        assertEquals(3905, map.get("key5"));
+        assertEquals(800, map.size());
+        for (int d = 39; d >= 0; d--) {
+            assertEquals(d * 100 + 9, map.get("key9"));
+            assertEquals(d, map.get("level" + d + "key3"));
+            map.pop();
+            assertNull(map.get("level" + d + "key3"));
+        }
+        assertTrue(map.isEmpty());
+        assertNull(map.get("key0"));
+    }
+
+    public void testHashCodeOfLevels() {
+        map.put("a", "1");
+        map.put("b", "2");
+        map.push();
+        map.put("a", "3");
+        Map<String,Object> level0 = new HashMap<String,Object>();
+        level0.put("a", "1");
+        level0.put("b", "2");
+        Map<String,Object> level1 = new HashMap<String,Object>();
+        level1.put("a", "3");
+        assertEquals(level0.hashCode() | level1.hashCode(), map.hashCode());
+    }
+
+    public void testRemoveThenPop() {
+        map.put("key", "v0");
+        map.push();
+        map.put("key", "v1");
+        map.remove("key");
+        map.push();
+        map.put("key", "v2");
+        assertEquals("v2", map.get("key"));
+        map.pop();
+        assertNull(map.get("key"));
+        map.pop();
+        assertNull(map.get("key"));
+        assertTrue(map.isEmpty());
+    }
+
+    public void testReplaceAtSameLevel() {
+        assertNull(map.put("key", "v0"));
+        assertEquals("v0", map.put("key", "v1"));
+        map.push();
+        assertNull(map.put("key", "v2"));
+        assertEquals(2, map.size());
+    }
+
+    public void testLazyLevels() {
+        map.put("key", "v0");
+        map.push();
+        map.push();
+        assertEquals(3, map.getDepth());
+        map.push();
+        map.put("key", "v3");
+        assertEquals(4, map.getDepth());
+        map.pop();
+        assertEquals("v0", map.get("key"));
+        map.push();
+        map.put("key", "v3");
+        map.pop();
+        map.pop();
+        map.pop();
+        assertEquals(1, map.getDepth());
+        assertEquals("v0", map.get("key"));
+        assertEquals(1, map.size());
+    }
+
+    public void testResetDropsGrownIndex() throws Exception {
+        for (int i = 0; i < StackedMap.MAX_RETAINED_SLOTS * 4; i++)
+            map.put("key" + i, i);
+        map.reset();
+        assertTrue(map.isEmpty());
+        Field slotKeys = StackedMap.class.getDeclaredField("slotKeys");
+        slotKeys.setAccessible(true);
+        assertTrue(((String[]) slotKeys.get(map)).length <= StackedMap.MAX_RETAINED_SLOTS);
+        map.put("foo", "bar");
+        assertEquals("bar", map.get("foo"));
+    }
+    public void testResetKeepsSmallIndex() {
+        map.put("foo", "bar");
+        map.reset();
+        assertNull(map.get("foo"));
+        map.put("foo", "baz");
+        assertEquals("baz", map.get("foo"));
+    }
 }
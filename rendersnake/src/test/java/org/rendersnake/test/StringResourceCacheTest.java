@@ -0,0 +1,125 @@
+package org.rendersnake.test;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.rendersnake.internal.LruStringResourceCache;
+import org.rendersnake.internal.UnboundedStringResourceCache;
+
+public class StringResourceCacheTest extends TestCase {
+
+    public void testEvictLeastRecentlyUsed() {
+        LruStringResourceCache cache = new LruStringResourceCache(10);
+        cache.put("a", "aaaa");
+        cache.put("b", "bbbb");
+        assertNotNull(cache.get("a"));
+        cache.put("c", "cccc");
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertEquals(8, cache.totalChars());
+        assertEquals(1, cache.evictionCount());
+        assertEquals(3, cache.hitCount());
+        assertEquals(1, cache.missCount());
+    }
+    public void testTooLargeIsNotKept() {
+        LruStringResourceCache cache = new LruStringResourceCache(3);
+        cache.put("a", "aaaa");
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.totalChars());
+    }
+    public void testReplace() {
+        LruStringResourceCache cache = new LruStringResourceCache(10);
+        cache.put("a", "aaaa");
+        cache.put("a", "aa");
+        assertEquals(2, cache.totalChars());
+        cache.remove("a");
+        assertEquals(0, cache.totalChars());
+    }
+    public void testReplaceOnlyIfPresent() {
+        LruStringResourceCache lru = new LruStringResourceCache(10);
+        assertNull(lru.replace("a", "aaaa"));
+        assertEquals(0, lru.size());
+        lru.put("a", "aa");
+        assertNotNull(lru.replace("a", "aaaa"));
+        assertEquals(4, lru.totalChars());
+        UnboundedStringResourceCache unbounded = new UnboundedStringResourceCache();
+        assertNull(unbounded.replace("a", "aaaa"));
+        assertEquals(0, unbounded.size());
+        unbounded.put("a", "aa");
+        assertNotNull(unbounded.replace("a", "aaaa"));
+        assertEquals(4, unbounded.totalChars());
+    }
+    public void testUtf8CountsTowardsSize() throws Exception {
+        LruStringResourceCache cache = new LruStringResourceCache(12);
+        cache.put("a", "aaaa");
+        cache.put("b", "bbbb");
+        assertEquals(8, cache.totalSize());
+        cache.get("a").getUtf8();
+        assertEquals(12, cache.totalSize());
+        cache.get("b").getUtf8();
+        // a was used least recently
+        assertNull(cache.get("a"));
+        assertEquals(8, cache.totalSize());
+        assertEquals(4, cache.totalChars());
+        assertEquals(1, cache.evictionCount());
+    }
+    public void testSegments() {
+        assertEquals(1, new LruStringResourceCache(10).getSegmentCount());
+        LruStringResourceCache cache = new LruStringResourceCache(64 * 1024 * 1024);
+        assertTrue(cache.getSegmentCount() > 1);
+        for (int i = 0; i < 100; i++)
+            cache.put("location" + i, "content" + i);
+        assertEquals(100, cache.size());
+        for (int i = 0; i < 100; i++)
+            assertEquals("content" + i, cache.get("location" + i).getContent());
+        assertEquals(100, cache.hitCount());
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.totalSize());
+    }
+    public void testLargerThanSegmentShareIsKept() {
+        long max = 1024 * 1024;
+        LruStringResourceCache cache = new LruStringResourceCache(max);
+        assertTrue(cache.getSegmentCount() > 1);
+        char[] chars = new char[(int) (2 * max / cache.getSegmentCount())];
+        Arrays.fill(chars, 'x');
+        String large = new String(chars);
+        cache.put("large", large).getUtf8();
+        assertNotNull(cache.get("large"));
+        assertEquals(2 * large.length(), cache.totalSize());
+        assertEquals(0, cache.evictionCount());
+    }
+    public void testMaximumIsForAllSegments() {
+        long max = 1024 * 1024;
+        LruStringResourceCache cache = new LruStringResourceCache(max);
+        char[] chars = new char[(int) (max / 4)];
+        Arrays.fill(chars, 'x');
+        String quarter = new String(chars);
+        for (int i = 0; i < 16; i++) {
+            cache.put("location" + i, quarter);
+            assertTrue(cache.totalSize() <= max);
+        }
+        assertEquals(4, cache.size());
+        assertNotNull(cache.get("location15"));
+        assertEquals(12, cache.evictionCount());
+    }
+    public void testExpiration() throws Exception {
+        LruStringResourceCache cache = new LruStringResourceCache(10, 1);
+        cache.put("a", "aaaa");
+        Thread.sleep(10);
+        assertNull(cache.get("a"));
+        assertEquals(1, cache.evictionCount());
+        assertEquals(0, cache.totalChars());
+    }
+    public void testUtf8() throws Exception {
+        UnboundedStringResourceCache cache = new UnboundedStringResourceCache();
+        byte[] bytes = cache.put("a", "Grüße").getUtf8();
+        assertEquals("Grüße", new String(bytes, "UTF-8"));
+        assertSame(bytes, cache.get("a").getUtf8());
+        cache.clear();
+        assertEquals(0, cache.totalChars());
+        assertNull(cache.get("a"));
+    }
+}
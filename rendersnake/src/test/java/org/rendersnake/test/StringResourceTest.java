@@ -1,7 +1,19 @@
 package org.rendersnake.test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.rendersnake.HtmlCanvas;
 import org.rendersnake.StringResource;
+import org.rendersnake.Utf8HtmlCanvas;
+import org.rendersnake.internal.CachedResource;
+import org.rendersnake.internal.LruStringResourceCache;
+import org.rendersnake.internal.ResourceWatcher;
+import org.rendersnake.internal.StringResourceCache;
 
 import junit.framework.TestCase;
 
@@ -28,4 +40,120 @@ public class StringResourceTest extends TestCase {
     public void test404() throws Exception {
         assertTrue(StringResource.get("http://ernestmicklei.com/missing").startsWith("[StringResource]"));
     }    
+    public void testRenderSampleOnUtf8() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Utf8HtmlCanvas html = new Utf8HtmlCanvas(bytes);
+        html.render(new StringResource("content/Sample.html"));
+        html.flush();
+        assertEquals(StringResource.get("content/Sample.html"), new String(bytes.toByteArray(), "UTF-8"));
+    }
+    public void testPluggableCache() throws Exception {
+        StringResourceCache previous = StringResource.getCache();
+        try {
+            LruStringResourceCache cache = new LruStringResourceCache(1024 * 1024);
+            StringResource.setCache(cache);
+            StringResource.get("content/Sample.html");
+            StringResource.get("content/Sample.html");
+            assertEquals(1, cache.size());
+            assertEquals(1, cache.hitCount());
+            assertEquals(1, cache.missCount());
+            assertEquals(StringResource.get("content/Sample.html").length(), cache.totalChars());
+        } finally {
+            StringResource.setCache(previous);
+        }
+    }
+    public void testSingleFlight() throws Exception {
+        StringResourceCache previous = StringResource.getCache();
+        final int threads = 8;
+        final CountDownLatch allMissed = new CountDownLatch(threads);
+        final AtomicInteger puts = new AtomicInteger();
+        StringResource.setCache(new LruStringResourceCache(1024 * 1024) {
+            @Override
+            public CachedResource get(String location) {
+                CachedResource resource = super.get(location);
+                allMissed.countDown();
+                try { allMissed.await(); } catch (InterruptedException ex) {}
+                return resource;
+            }
+            @Override
+            public CachedResource put(String location, String content) {
+                puts.incrementAndGet();
+                try { Thread.sleep(200); } catch (InterruptedException ex) {}
+                return super.put(location, content);
+            }
+        });
+        try {
+            Thread[] workers = new Thread[threads];
+            for (int i = 0; i < threads; i++) {
+                workers[i] = new Thread() {
+                    public void run() {
+                        StringResource.get("content/Sample.html");
+                    }
+                };
+                workers[i].start();
+            }
+            for (Thread each : workers) each.join();
+            assertEquals(1, puts.get());
+        } finally {
+            StringResource.setCache(previous);
+        }
+    }
+    public void testPreload() throws Exception {
+        StringResourceCache previous = StringResource.getCache();
+        try {
+            LruStringResourceCache cache = new LruStringResourceCache(1024 * 1024);
+            StringResource.setCache(cache);
+            StringResource.preload(Arrays.asList("content/Sample.html", "content/Sample.html", "contents/Missing.html"));
+            assertEquals(1, cache.size());
+            assertNotNull(cache.get("content/Sample.html"));
+        } finally {
+            StringResource.setCache(previous);
+        }
+    }
+    public void testExactContent() throws Exception {
+        assertEquals("<h1>Sample</h1>", StringResource.get("content/Sample.html", false));
+        assertEquals("Grüße\r\nline two\r\n", StringResource.get("content/Utf8Sample.txt", false));
+    }
+    public void testWatching() throws Exception {
+        File dir = new File(StringResourceTest.class.getResource("/content/Sample.html").toURI()).getParentFile();
+        File file = new File(dir, "Watched.txt");
+        write(file, "before");
+        StringResource.startWatching();
+        try {
+            assertEquals("before", StringResource.get("content/Watched.txt"));
+            write(file, "after");
+            long deadline = System.currentTimeMillis() + 20000;
+            while (!"after".equals(StringResource.get("content/Watched.txt")) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals("after", StringResource.get("content/Watched.txt"));
+        } finally {
+            StringResource.stopWatching();
+            StringResource.flush("content/Watched.txt");
+            file.delete();
+        }
+    }
+    public void testUnwatch() throws Exception {
+        ResourceWatcher watcher = new ResourceWatcher(new ResourceWatcher.Reloader() {
+            public void reload(String location, File file) {}
+            public void remove(String location) {}
+        });
+        try {
+            File file = new File(StringResourceTest.class.getResource("/content/Sample.html").toURI());
+            watcher.watch("content/Sample.html", file);
+            watcher.watch("/content/Sample.html", file);
+            assertEquals(1, watcher.size());
+            watcher.unwatch("content/Sample.html");
+            assertEquals(1, watcher.size());
+            watcher.unwatch("/content/Sample.html");
+            assertEquals(0, watcher.size());
+        } finally {
+            watcher.close();
+        }
+    }
+    private void write(File file, String content) throws Exception {
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(content.getBytes("UTF-8"));
+        out.close();
+    }
 }
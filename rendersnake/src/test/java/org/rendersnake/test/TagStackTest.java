@@ -0,0 +1,49 @@
+package org.rendersnake.test;
+
+import junit.framework.TestCase;
+
+import org.rendersnake.HtmlCanvas;
+import org.rendersnake.error.RenderException;
+import org.rendersnake.internal.TagStack;
+
+public class TagStackTest extends TestCase {
+
+    public void testCloseTagIsInterned() {
+        assertSame("</div>", TagStack.closeTagFor("div"));
+        assertSame(TagStack.closeTagFor("custom"), TagStack.closeTagFor("custom"));
+    }
+    public void testPushPop() {
+        TagStack stack = new TagStack(1);
+        assertTrue(stack.isEmpty());
+        assertNull(stack.peek());
+        for (int i = 0; i < 10; i++)
+            stack.add("</" + i + ">");
+        assertEquals(10, stack.size());
+        assertEquals("</0>", stack.get(0));
+        assertEquals("</9>", stack.peek());
+        assertEquals("</9>", stack.pop());
+        assertEquals(9, stack.size());
+        stack.clear();
+        assertTrue(stack.isEmpty());
+    }
+    public void testToString() {
+        TagStack stack = new TagStack(4);
+        stack.add("</a>");
+        stack.add("</b>");
+        assertEquals("[</a>, </b>]", stack.toString());
+    }
+    public void testCustomTagClosedByGenericClose() throws Exception {
+        HtmlCanvas html = new HtmlCanvas();
+        html.tag("custom").tag_close("custom");
+        assertEquals("<custom></custom>", html.toHtml());
+    }
+    public void testCustomTagMismatch() throws Exception {
+        HtmlCanvas html = new HtmlCanvas();
+        try {
+            html.tag("custom")._div();
+            fail("expected RenderException");
+        } catch (RenderException ex) {
+            assertEquals("</custom>", ex.expectedTag);
+        }
+    }
+}
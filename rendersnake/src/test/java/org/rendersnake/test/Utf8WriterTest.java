@@ -0,0 +1,98 @@
+package org.rendersnake.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+
+import junit.framework.TestCase;
+
+import org.rendersnake.Utf8HtmlCanvas;
+import org.rendersnake.internal.Utf8Writer;
+
+public class Utf8WriterTest extends TestCase {
+    private ByteArrayOutputStream bytes;
+    private Utf8Writer writer;
+
+    public void setUp() {
+        bytes = new ByteArrayOutputStream();
+        writer = new Utf8Writer(bytes, 8);
+    }
+    private String written() throws Exception {
+        writer.flush();
+        return new String(bytes.toByteArray(), "UTF-8");
+    }
+    public void testAscii() throws Exception {
+        writer.write("<div class=\"x\">");
+        assertEquals("<div class=\"x\">", written());
+    }
+    public void testMultiByte() throws Exception {
+        String text = "Crème brûlée € 日本語";
+        writer.write(text);
+        assertEquals(text, written());
+        assertEquals(text.getBytes("UTF-8").length, bytes.size());
+    }
+    public void testChars() throws Exception {
+        char[] chars = "xxé€yy".toCharArray();
+        writer.write(chars, 2, 2);
+        assertEquals("é€", written());
+    }
+    public void testSurrogatePairSplitOverWrites() throws Exception {
+        String smiley = "😀";
+        writer.write(smiley.charAt(0));
+        writer.write(smiley.charAt(1));
+        assertEquals(smiley, written());
+    }
+    public void testUnpairedSurrogate() throws Exception {
+        writer.write("a\uD83Db\uDE00c");
+        assertEquals("a?b?c", written());
+    }
+    public void testWriteBytes() throws Exception {
+        writer.write("<p>");
+        writer.writeBytes("Grüße, this is longer than the buffer".getBytes("UTF-8"));
+        writer.write("</p>");
+        assertEquals("<p>Grüße, this is longer than the buffer</p>", written());
+    }
+    public void testBuffered() throws Exception {
+        writer.write("abc");
+        assertEquals(3, writer.buffered());
+        assertEquals(0, bytes.size());
+        writer.flush();
+        assertEquals(0, writer.buffered());
+        assertEquals(3, bytes.size());
+    }
+    public void testCanvas() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Utf8HtmlCanvas html = new Utf8HtmlCanvas(out);
+        html.div().write("Ärger", false).write(" & <b>")._div();
+        html.flush();
+        assertEquals("<div>Ärger &amp; &lt;b&gt;</div>", new String(out.toByteArray(), "UTF-8"));
+    }
+    public void testCanvasReset() throws Exception {
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        Utf8HtmlCanvas html = new Utf8HtmlCanvas(first);
+        html.div().write("dropped");
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        html.reset(second).p().write("Ärger")._p();
+        html.flush();
+        assertEquals(0, first.size());
+        assertEquals("<p>Ärger</p>", new String(second.toByteArray(), "UTF-8"));
+    }
+    public void testCanvasResetToWriter() throws Exception {
+        Utf8HtmlCanvas html = new Utf8HtmlCanvas(new ByteArrayOutputStream());
+        StringWriter chars = new StringWriter();
+        html.reset(chars).p()._p();
+        assertEquals("<p></p>", chars.toString());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        html.reset(bytes).p()._p();
+        html.flush();
+        assertEquals("<p></p>", new String(bytes.toByteArray(), "UTF-8"));
+    }
+    public void testUtf8WriterWhilePendingTag() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Utf8HtmlCanvas html = new Utf8HtmlCanvas(bytes);
+        html.open("p").id("x");
+        assertNotNull(html.getUtf8Writer());
+        html.write("text")._p();
+        html.getUtf8Writer().flush();
+        assertEquals("<p id=\"x\">text</p>", new String(bytes.toByteArray(), "UTF-8"));
+    }
+}
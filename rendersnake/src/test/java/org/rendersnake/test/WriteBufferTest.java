@@ -62,4 +62,14 @@ public class WriteBufferTest extends TestCase {
         wb.writeCharsOn(sw);
         assertEquals(wb.toString(), sw.toString());
     }
+    public void testInt(){
+        wb.append(0);
+        wb.append(' ');
+        wb.append(-42);
+        wb.append(' ');
+        wb.append(Integer.MAX_VALUE);
+        wb.append(' ');
+        wb.append(Integer.MIN_VALUE);
+        assertEquals("0 -42 2147483647 -2147483648", wb.toString());
+    }
 }